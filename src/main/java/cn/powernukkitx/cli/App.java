@@ -1,5 +1,7 @@
 package cn.powernukkitx.cli;
 
+import cn.powernukkitx.cli.cmd.ComponentsCommand;
+import cn.powernukkitx.cli.cmd.RollbackCommand;
 import cn.powernukkitx.cli.cmd.StartCommand;
 import cn.powernukkitx.cli.cmd.SysInstallCommand;
 import cn.powernukkitx.cli.util.*;
@@ -18,7 +20,9 @@ import static org.fusesource.jansi.Ansi.ansi;
 @Command(name = "pnx", aliases = {"pnx", "PNX", "cli"}, version = CLIConstant.version, mixinStandardHelpOptions = true,
         resourceBundle = "cn.powernukkitx.cli.App", subcommands = {
         SysInstallCommand.class,
-        StartCommand.class
+        StartCommand.class,
+        RollbackCommand.class,
+        ComponentsCommand.class
 })
 public final class App implements Callable<Integer> {
 
@@ -26,6 +30,10 @@ public final class App implements Callable<Integer> {
     @Option(names = {"-l", "--lang", "--language"}, paramLabel = "<lang>", descriptionKey = "lang")
     private String ignoredLocale;
 
+    @SuppressWarnings("unused")
+    @Option(names = "--log-format", paramLabel = "<text|json>", descriptionKey = "log-format")
+    private String ignoredLogFormat;
+
     @Option(names = "--config-path", paramLabel = "<config-path>", descriptionKey = "config-path")
     public String configFilePath;
 
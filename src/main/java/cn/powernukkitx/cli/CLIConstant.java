@@ -10,4 +10,5 @@ public interface CLIConstant {
     List<String> authors = List.of("超神的冰凉", "CoolLoong");
     File userDir = new File(System.getProperty("user.dir"));
     File programDir = new File(OSUtils.getProgramDir());
+    File cacheDir = new File(programDir, "cache");
 }
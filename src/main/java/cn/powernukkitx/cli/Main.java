@@ -2,6 +2,7 @@ package cn.powernukkitx.cli;
 
 import cn.powernukkitx.cli.util.ConfigUtils;
 import cn.powernukkitx.cli.util.EnumOS;
+import cn.powernukkitx.cli.util.Logger;
 import cn.powernukkitx.cli.util.OSUtils;
 import org.fusesource.jansi.AnsiConsole;
 import picocli.CommandLine;
@@ -16,6 +17,7 @@ public final class Main {
     public static void main(String[] args) {
         AnsiConsole.systemInstall();
         ConfigUtils.init();
+        Logger.useJson("json".equalsIgnoreCase(ConfigUtils.logFormat()));
         // 先设置语言
         if (ConfigUtils.forceLang() != null) {
             Locale.setDefault(Locale.forLanguageTag(ConfigUtils.forceLang().toLowerCase()));
@@ -41,6 +43,7 @@ public final class Main {
         var exitCode = new CommandLine(new App()).execute(args);
         if (timer != null)
             timer.cancel();
+        Logger.flush();
         System.exit(exitCode);
     }
 
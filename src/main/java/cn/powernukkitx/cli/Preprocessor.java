@@ -1,5 +1,6 @@
 package cn.powernukkitx.cli;
 
+import cn.powernukkitx.cli.util.Logger;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Unmatched;
@@ -14,6 +15,11 @@ public class Preprocessor {
         Locale.setDefault(Locale.forLanguageTag(locale));
     }
 
+    @Option(names = "--log-format", descriptionKey = "log-format")
+    public void setLogFormat(String format) {
+        Logger.useJson("json".equalsIgnoreCase(format));
+    }
+
     @Unmatched
     public List<String> remainder;
 }
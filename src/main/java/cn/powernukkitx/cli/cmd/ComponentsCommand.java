@@ -0,0 +1,71 @@
+package cn.powernukkitx.cli.cmd;
+
+import cn.powernukkitx.cli.CLIConstant;
+import cn.powernukkitx.cli.Main;
+import cn.powernukkitx.cli.data.installer.ComponentManager;
+import cn.powernukkitx.cli.data.locator.JavaLocator;
+import cn.powernukkitx.cli.util.ConfigUtils;
+import cn.powernukkitx.cli.util.Logger;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+
+import java.util.Formatter;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+
+import static cn.powernukkitx.cli.util.StringUtils.displayableBytes;
+import static org.fusesource.jansi.Ansi.ansi;
+
+@Command(name = "components", mixinStandardHelpOptions = true, resourceBundle = "cn.powernukkitx.cli.cmd.Components")
+public final class ComponentsCommand implements Callable<Integer> {
+    @Parameters(index = "0", arity = "0..1", defaultValue = "list", paramLabel = "<list|install|remove>", descriptionKey = "action")
+    public String action;
+
+    @Parameters(index = "1", arity = "0..1", paramLabel = "<component>", descriptionKey = "component")
+    public String component;
+
+    private final ResourceBundle bundle = ResourceBundle.getBundle("cn.powernukkitx.cli.cmd.Components");
+
+    @Override
+    public Integer call() {
+        var manager = new ComponentManager(CLIConstant.userDir);
+        if ("list".equalsIgnoreCase(action)) {
+            var java = new JavaLocator("21", true).locateFirst(info -> info.getVendor().contains(ConfigUtils.preferredJVM()));
+            for (var each : ComponentManager.getAll().values()) {
+                var installed = manager.installedVersion(each);
+                Logger.info(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("entry"), each.name(), each.version(),
+                        displayableBytes(each.size()), each.description())).fgDefault());
+                Logger.info(ansi().a(new Formatter().format(bundle.getString("installed"), installed == null ? bundle.getString("none") : installed)));
+                java.ifPresent(location -> Logger.info(ansi().a(new Formatter().format(bundle.getString("status"), location.getInfo().getVendor(),
+                        bundle.getString("compatibility." + manager.check(each, location.getFile(), location.getInfo()).name().toLowerCase())))));
+            }
+            return 0;
+        }
+        if (component == null) {
+            Logger.error(ansi().fgBrightRed().a(bundle.getString("no-component")).fgDefault());
+            return 1;
+        }
+        var target = ComponentManager.get(component);
+        if (target.isEmpty()) {
+            Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("unknown"), component,
+                    String.join(", ", ComponentManager.getAll().keySet()))).fgDefault());
+            return 1;
+        }
+        if ("install".equalsIgnoreCase(action)) {
+            if (!manager.install(target.get(), Main.getTimer())) {
+                return 1;
+            }
+            Logger.info(ansi().fgBrightGreen().a(new Formatter().format(bundle.getString("install-success"), target.get().name(), target.get().version())).fgDefault());
+            return 0;
+        } else if ("remove".equalsIgnoreCase(action)) {
+            if (!manager.remove(target.get())) {
+                Logger.warn(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("not-installed"), target.get().name())).fgDefault());
+                return 1;
+            }
+            Logger.info(ansi().fgBrightGreen().a(new Formatter().format(bundle.getString("remove-success"), target.get().name())).fgDefault());
+            return 0;
+        }
+        Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("unknown-action"), action)).fgDefault());
+        return 1;
+    }
+}
@@ -0,0 +1,58 @@
+package cn.powernukkitx.cli.cmd;
+
+import cn.powernukkitx.cli.CLIConstant;
+import cn.powernukkitx.cli.data.installer.StagedInstaller;
+import cn.powernukkitx.cli.util.Logger;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Formatter;
+import java.util.LinkedHashMap;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+import static org.fusesource.jansi.Ansi.ansi;
+
+@Command(name = "rollback", mixinStandardHelpOptions = true, resourceBundle = "cn.powernukkitx.cli.cmd.Rollback")
+public final class RollbackCommand implements Callable<Integer> {
+    @Parameters(index = "0", arity = "0..1", defaultValue = "all", paramLabel = "<libs|core|all>", descriptionKey = "target")
+    public String target;
+
+    private final ResourceBundle bundle = ResourceBundle.getBundle("cn.powernukkitx.cli.cmd.Rollback");
+
+    @Override
+    public Integer call() {
+        var installers = new LinkedHashMap<String, StagedInstaller>();
+        if ("libs".equalsIgnoreCase(target) || "all".equalsIgnoreCase(target)) {
+            installers.put("libs", StagedInstaller.forDirectory(new File(CLIConstant.userDir, "libs")));
+        }
+        if ("core".equalsIgnoreCase(target) || "all".equalsIgnoreCase(target)) {
+            installers.put("core", StagedInstaller.forFiles(CLIConstant.userDir, "core"));
+        }
+        if (installers.isEmpty()) {
+            Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("unknown"), target)).fgDefault());
+            return 1;
+        }
+        var code = 0;
+        for (var entry : installers.entrySet()) {
+            if (!entry.getValue().canRollback()) {
+                Logger.warn(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("nothing"), entry.getKey())).fgDefault());
+                continue;
+            }
+            try {
+                entry.getValue().rollback();
+                Logger.info(ansi().fgBrightGreen().a(new Formatter().format(bundle.getString("success"), entry.getKey())).fgDefault());
+            } catch (IOException e) {
+                Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("fail"), entry.getKey())).fgDefault());
+                if (debug()) {
+                    e.printStackTrace();
+                }
+                code = 1;
+            }
+        }
+        return code;
+    }
+}
@@ -2,109 +2,296 @@ package cn.powernukkitx.cli.cmd;
 
 import cn.powernukkitx.cli.CLIConstant;
 import cn.powernukkitx.cli.Main;
+import cn.powernukkitx.cli.data.builder.JVMSizing;
+import cn.powernukkitx.cli.data.cache.AppCDS;
+import cn.powernukkitx.cli.data.cache.FileStamp;
+import cn.powernukkitx.cli.data.builder.LaunchProfile;
 import cn.powernukkitx.cli.data.builder.JVMStartCommandBuilder;
+import cn.powernukkitx.cli.data.installer.ComponentManager;
+import cn.powernukkitx.cli.data.installer.LibsSyncEngine;
+import cn.powernukkitx.cli.data.installer.StagedInstaller;
 import cn.powernukkitx.cli.data.locator.JarLocator;
 import cn.powernukkitx.cli.data.locator.JavaLocator;
+import cn.powernukkitx.cli.data.process.ConsoleBridge;
+import cn.powernukkitx.cli.data.process.ConsoleForwarder;
+import cn.powernukkitx.cli.data.process.ConsoleOutput;
+import cn.powernukkitx.cli.data.process.JsonLineOutputStream;
+import cn.powernukkitx.cli.data.process.OutputPump;
+import cn.powernukkitx.cli.data.process.RotatingLog;
+import cn.powernukkitx.cli.data.process.StdinFileForwarder;
+import cn.powernukkitx.cli.data.process.Supervisor;
+import cn.powernukkitx.cli.data.remote.VersionListHelperV2;
 import cn.powernukkitx.cli.util.*;
+import org.fusesource.jansi.Ansi;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 import static cn.powernukkitx.cli.util.NullUtils.Ok;
 import static org.fusesource.jansi.Ansi.ansi;
 
 @Command(name = "start", mixinStandardHelpOptions = true, resourceBundle = "cn.powernukkitx.cli.cmd.Start")
 public final class StartCommand implements Callable<Integer> {
+    private static final String MAIN_CLASS = "cn.nukkit.Nukkit";
+    private static final long OUTPUT_CLOSE_TIMEOUT = 5000;
+
     private final ResourceBundle bundle = ResourceBundle.getBundle("cn.powernukkitx.cli.cmd.Start");
 
     @Option(names = {"-g", "--generate-only"}, descriptionKey = "generate-only", help = true)
     public boolean generateOnly;
 
     @Option(names = {"-r", "--restart"}, descriptionKey = "restart", help = true, negatable = true)
-    public boolean restart;
+    public Boolean restart;
+
+    @Option(names = "--hot-standby", descriptionKey = "hot-standby", negatable = true)
+    public Boolean hotStandby;
 
     @Option(names = "--stdin", descriptionKey = "stdin", help = true)
     public String stdin;
 
+    @Option(names = "--output-pump", descriptionKey = "output-pump", negatable = true)
+    public Boolean outputPump;
+
+    @Option(names = "--console-socket", descriptionKey = "console-socket", paramLabel = "<path>", arity = "0..1", fallbackValue = "pnx-console.sock")
+    public String consoleSocket;
+
+    @Option(names = "--sync-libs", descriptionKey = "sync-libs", paramLabel = "<build|release>", arity = "0..1", fallbackValue = "build")
+    public String syncLibs;
+
+    @Option(names = "--profile", descriptionKey = "profile", paramLabel = "<default|latency|throughput|footprint>")
+    public String profile;
+
     @Parameters(index = "0..*", hidden = true)
     public String[] args;
 
-    private String[] startCommand = null;
+    private ConsoleBridge consoleBridge = null;
+    private boolean pumpOutput = false;
 
     @Override
     public Integer call() {
-        var cmdBuilder = new JVMStartCommandBuilder();
-        var javaList = new JavaLocator("21", true).locate();
-        if (javaList.isEmpty()) {
-            Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("no-java21"), OSUtils.getProgramName())).fgDefault());
+        var launch = prepare(false);
+        if (launch == null) {
             return 1;
         }
-        var java = javaList.get(0);
+        if (generateOnly) {
+            return 0;
+        }
+        openOutputPump();
+        openConsoleBridge();
+        try {
+            return supervise(launch);
+        } finally {
+            ConsoleOutput.close(OUTPUT_CLOSE_TIMEOUT);
+        }
+    }
+
+    private int supervise(Supervisor.Launch launch) {
+        var runner = new Supervisor.Runner() {
+            @Override
+            public @NotNull Process launch(@NotNull List<String> argv) throws IOException {
+                return StartCommand.this.launch(argv);
+            }
+
+            @Override
+            public void attach(@NotNull Process process) {
+                StartCommand.this.attach(process);
+            }
+        };
+        var useRestart = restart != null ? restart : ConfigUtils.autoRestart();
+        if (useHotStandby()) {
+            // 只开热备不开自动重启时，服务器退出就不再拉起
+            var supervisor = useRestart ? new Supervisor(this::prepare, runner)
+                    : new Supervisor(this::prepare, runner, "*:stop", ConfigUtils.minRestartTime(), ConfigUtils.maxQuickRestarts());
+            return supervisor.enableHotStandby(MAIN_CLASS).supervise(launch);
+        }
+        if (useRestart) {
+            return new Supervisor(this::prepare, runner).supervise(launch);
+        }
+        return start(launch.argv());
+    }
+
+    // 预热时服务器还在运行：不安装不同步，也不输出日志，有任何问题就留到服务器退出后再正常准备一次
+    private Supervisor.@Nullable Launch prepare(boolean prewarm) {
+        Consumer<Ansi> logInfo = prewarm ? msg -> {} : Logger::info;
+        Consumer<Ansi> logWarn = prewarm ? msg -> {} : Logger::warn;
+        Consumer<Ansi> logError = prewarm ? msg -> {} : Logger::error;
+        var cmdBuilder = new JVMStartCommandBuilder();
+        var javaLocation = new JavaLocator("21", true).locateFirst(info -> info.getVendor().contains(ConfigUtils.preferredJVM()));
+        if (javaLocation.isEmpty()) {
+            logError.accept(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("no-java21"), OSUtils.getProgramName())).fgDefault());
+            return null;
+        }
+        var java = javaLocation.get();
         cmdBuilder.setJvmExecutable(java.getFile());
-        Logger.info(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("using-jvm"), java.getInfo().getVendor())).fgDefault());
+        logInfo.accept(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("using-jvm"), java.getInfo().getVendor())).fgDefault());
+        if (!prewarm) {
+            Logger.event("jvm", "path", java.getFile().getAbsolutePath(), "vendor", java.getInfo().getVendor(), "version", java.getInfo().getFullVersion());
+        }
         var pnxList = new JarLocator(CLIConstant.userDir, "cn.nukkit.PlayerHandle").locate();
         //auto install
         if (pnxList.isEmpty()) {
+            if (prewarm) {
+                return null;
+            }
             File file = new File(CLIConstant.userDir, "PowerNukkitX-Core.zip");
 
             if (file.exists()) {
-                new JarLocator(CLIConstant.userDir, "cn.nukkit.PlayerHandle").locate().forEach(each -> each.getFile().delete());
+                var installer = StagedInstaller.forFiles(CLIConstant.userDir, "core");
                 try {
-                    CompressUtils.uncompressZipFile(file, new File(""));
+                    var staging = installer.begin();
+                    CompressUtils.uncompressZipFile(file, staging);
+                    if (new JarLocator(staging, "cn.nukkit.PlayerHandle").locate().isEmpty()) {
+                        installer.abort();
+                        logError.accept(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("bad-archive"), file.getName())).fgDefault());
+                        return null;
+                    }
+                    var obsolete = new ArrayList<File>();
+                    new JarLocator(CLIConstant.userDir, "cn.nukkit.PlayerHandle").locate().forEach(each -> obsolete.add(each.getFile()));
+                    installer.commit(obsolete);
                     Files.deleteIfExists(file.toPath());
                 } catch (IOException e) {
+                    installer.abort();
                     throw new RuntimeException(e);
                 }
                 pnxList = new JarLocator(CLIConstant.userDir, "cn.nukkit.PlayerHandle").locate();
             } else {
-                Logger.warn(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("no-pnx"), OSUtils.getProgramName())).fgDefault());
-                return 1;
+                logWarn.accept(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("no-pnx"), OSUtils.getProgramName())).fgDefault());
+                return null;
             }
         }
         var libDir = new File(CLIConstant.userDir, "libs");
+        try {
+            if (!prewarm) {
+                StagedInstaller.forDirectory(libDir).recover();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
         if (!libDir.exists()) {
             //noinspection ResultOfMethodCallIgnored
             libDir.mkdirs();
         }
+        if (syncLibs != null && !prewarm) {
+            try {
+                var artifact = "release".equalsIgnoreCase(syncLibs) ? VersionListHelperV2.getLatestReleaseLibsArtifact() : VersionListHelperV2.getLatestBuildLibsArtifact();
+                var remoteLibs = artifact.thenCompose(VersionListHelperV2::getReleaseLibsFromArtifact);
+                var engine = new LibsSyncEngine(libDir, remoteLibs.join());
+                var libFiles = libDir.listFiles((dir, name) -> name.endsWith(".jar"));
+                if (libFiles == null || libFiles.length < 32) {
+                    if (!engine.install(artifact.join(), Main.getTimer())) {
+                        return null;
+                    }
+                }
+                if (!engine.sync(Main.getTimer())) {
+                    return null;
+                }
+            } catch (CompletionException e) {
+                logError.accept(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("sync-libs-fail"), e.getCause().getMessage())).fgDefault());
+                return null;
+            }
+        }
         var oldLibFiles = new LinkedList<>(Arrays.asList(Objects.requireNonNull(libDir.listFiles((dir, name) -> name.endsWith(".jar")))));
         if (oldLibFiles.size() < 32) {
+            if (prewarm) {
+                return null;
+            }
             File file = new File(CLIConstant.userDir, "PowerNukkitX-Libs.zip");
             if (file.exists()) {
-                File libs = new File(CLIConstant.userDir, "libs");
-                FileUtils.deleteDir(libs);
+                var installer = StagedInstaller.forDirectory(libDir);
                 try {
-                    CompressUtils.uncompressZipFile(file, libs);
+                    var staging = installer.begin();
+                    CompressUtils.uncompressZipFile(file, staging);
+                    var stagedLibs = staging.listFiles((dir, name) -> name.endsWith(".jar"));
+                    if (stagedLibs == null || stagedLibs.length == 0) {
+                        installer.abort();
+                        logError.accept(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("bad-archive"), file.getName())).fgDefault());
+                        return null;
+                    }
+                    installer.commit();
                     Files.deleteIfExists(file.toPath());
                 } catch (IOException e) {
+                    installer.abort();
                     throw new RuntimeException(e);
                 }
             } else {
-                Logger.warn(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("no-libs"), OSUtils.getProgramName())).fgDefault());
-                return 1;
+                logWarn.accept(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("no-libs"), OSUtils.getProgramName())).fgDefault());
+                return null;
             }
         }
         var pnx = pnxList.get(0);
         cmdBuilder.addClassPath(pnx.getFile().getAbsolutePath());
-        Logger.info(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("using-pnx"), Ok(pnx.getInfo().getGitInfo().orElse(null), info -> info.getMainVersion() + " - " + info.getCommitID(), "unknown"))).fgDefault());
-        cmdBuilder.setStartTarget("cn.nukkit.Nukkit");
-        cmdBuilder.addClassPath(new File(CLIConstant.userDir, "libs").getAbsolutePath() + File.separator + "*");
+        logInfo.accept(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("using-pnx"), Ok(pnx.getInfo().getGitInfo().orElse(null), gitInfo -> gitInfo.getMainVersion() + " - " + gitInfo.getCommitID(), "unknown"))).fgDefault());
+        cmdBuilder.setStartTarget(MAIN_CLASS);
+        var classPathJars = new ArrayList<File>();
+        classPathJars.add(pnx.getFile().getAbsoluteFile());
+        if (ConfigUtils.appCDS()) {
+            // CDS需要每次完全一致的classpath，通配符展开的顺序不固定，所以这里按文件名排好
+            var libJars = Objects.requireNonNull(libDir.listFiles((dir, name) -> name.endsWith(".jar")));
+            Arrays.sort(libJars, Comparator.comparing(File::getName));
+            for (var each : libJars) {
+                classPathJars.add(each.getAbsoluteFile());
+                cmdBuilder.addClassPath(each.getAbsolutePath());
+            }
+        } else {
+            cmdBuilder.addClassPath(new File(CLIConstant.userDir, "libs").getAbsolutePath() + File.separator + "*");
+        }
         cmdBuilder.addProperty("file.encoding", "UTF-8");
         cmdBuilder.addProperty("jansi.passthrough", "true");
         cmdBuilder.addProperty("terminal.ansi", "true");
         cmdBuilder.addAddOpen("java.base/java.lang");
         cmdBuilder.addAddOpen("java.base/java.io");
         cmdBuilder.addAddOpen("java.base/java.net");
-        cmdBuilder.addXOption("mx", ConfigUtils.maxVMMemory());
-        cmdBuilder.addXxOption("UseZGC", true);
-        cmdBuilder.addXxOption("ZGenerational", true);
-        cmdBuilder.addXxOption("UseStringDeduplication", true);
+        var profileName = profile != null ? profile : ConfigUtils.launchProfile();
+        var launchProfile = LaunchProfile.get(profileName);
+        if (launchProfile.isEmpty()) {
+            logError.accept(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("unknown-profile"), profileName,
+                    String.join(", ", LaunchProfile.getAll().keySet()))).fgDefault());
+            return null;
+        }
+        if (!launchProfile.get().supports(java.getInfo())) {
+            logError.accept(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("profile-unsupported"), profileName,
+                    launchProfile.get().minJava(), java.getInfo().getMajorVersion())).fgDefault());
+            return null;
+        }
+        logInfo.accept(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("using-profile"), profileName,
+                launchProfile.get().version(), launchProfile.get().description())).fgDefault());
+        var skippedFlags = launchProfile.get().apply(cmdBuilder, java.getInfo());
+        if (!skippedFlags.isEmpty()) {
+            logWarn.accept(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("profile-skipped"),
+                    String.join(", ", skippedFlags), java.getInfo().getVendor())).fgDefault());
+        }
+        var sizing = JVMSizing.detect(ConfigUtils.maxVMMemory());
+        cmdBuilder.applySizing(sizing);
+        if (ConfigUtils.displayLaunchCommand()) {
+            logInfo.accept(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("sizing-memory"),
+                    StringUtils.displayableBytes(sizing.availableMemory()), bundle.getString(sizing.memoryLimited() ? "sizing-cgroup" : "sizing-host"),
+                    StringUtils.displayableBytes(sizing.heap()), bundle.getString(sizing.heapConfigured() ? "sizing-configured" : "sizing-auto"),
+                    StringUtils.displayableBytes(sizing.maxDirectMemory()))).fgDefault());
+            logInfo.accept(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("sizing-cpu"),
+                    sizing.processors(), bundle.getString(sizing.cpuLimited() ? "sizing-cgroup" : "sizing-host"), sizing.concGCThreads())).fgDefault());
+        }
+        if (ConfigUtils.graalJIT()) {
+            var components = new ComponentManager(CLIConstant.userDir);
+            var graalJIT = components.wireGraalJIT(cmdBuilder, java.getFile(), java.getInfo());
+            if (graalJIT == ComponentManager.Compatibility.COMPATIBLE) {
+                logInfo.accept(ansi().fgBrightYellow().a(bundle.getString("graal-jit-enabled")).fgDefault());
+            } else if (graalJIT == ComponentManager.Compatibility.NOT_INSTALLED) {
+                logInfo.accept(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("graal-jit-available"), OSUtils.getProgramName())).fgDefault());
+            } else if (graalJIT != ComponentManager.Compatibility.BUILT_IN && ComponentManager.get("graaljit").map(components::isInstalled).orElse(false)) {
+                logWarn.accept(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("graal-jit-skipped"), java.getInfo().getVendor(),
+                        ResourceBundle.getBundle("cn.powernukkitx.cli.cmd.Components").getString("compatibility." + graalJIT.name().toLowerCase()))).fgDefault());
+            }
+        }
         for (var each : ConfigUtils.vmParams()) {
             cmdBuilder.addOtherArgs(each);
         }
@@ -119,92 +306,66 @@ public final class StartCommand implements Callable<Integer> {
         }
         if (generateOnly) {
             Logger.raw(cmdBuilder.build() + "\n");
-            return 0;
+            Logger.event("launch-command", "argv", cmdBuilder.buildArgv());
+            // call() stops here, the argv is never launched
+            return new Supervisor.Launch(List.of(), () -> false, List::of);
+        }
+        // 升级模块路径下JVM不肯生成CDS归档
+        AppCDS.Plan cdsPlan = null;
+        if (ConfigUtils.appCDS() && cmdBuilder.getUpgradeModulePath().isEmpty()) {
+            cdsPlan = AppCDS.forServer(CLIConstant.userDir).plan(java.getFile(), java.getInfo(), classPathJars);
+            cdsPlan.applyTo(cmdBuilder);
+            logInfo.accept(ansi().fgBrightYellow().a(bundle.getString(cdsPlan.exists() ? "cds-use" : "cds-create")).fgDefault());
         }
         cmdBuilder.addProperty("pnx.cli.path", OSUtils.getProgramPath());
         cmdBuilder.addProperty("pnx.cli.version", CLIConstant.version);
-        startCommand = cmdBuilder.build().split(" ");
-        if (restart) {
-            var result = start();
-            while (true) {
-                if (!InputUtils.pressEnterToStopWithTimeLimit(10000)) {
-                    result = start();
-                } else {
-                    return result;
-                }
-            }
-        } else {
-            return start();
+        // 每个服务器目录一个参数文件，classpath太长时才会用到
+        cmdBuilder.setArgFile(new File(CLIConstant.cacheDir, "launch-" + Integer.toHexString(CLIConstant.userDir.getAbsolutePath().hashCode()) + ".args"));
+        var argv = cmdBuilder.buildArgv();
+        if (ConfigUtils.displayLaunchCommand()) {
+            logInfo.accept(ansi().a(String.join(" ", argv.stream().map(StringUtils::tryWrapQuotation).toList())));
         }
+        var pnxFile = pnx.getFile();
+        var inputs = launchInputs(pnxFile, libDir);
+        // 这次要生成的CDS归档在上一个进程退出时出现了，参数就得换成使用归档
+        var cdsArchive = cdsPlan != null && !cdsPlan.exists() ? cdsPlan.archive() : null;
+        return new Supervisor.Launch(argv, () -> inputs.equals(launchInputs(pnxFile, libDir)) && (cdsArchive == null || !cdsArchive.isFile()),
+                () -> jarInputs(pnxFile, libDir));
     }
 
-    enum GraalStatus {
-        NotFound,
-        Standard,
-        Oracle,
-        LowVersion
+    // 这些文件变了，之前生成的启动参数就不能再用了；安装包zip不算，prepare只在缺核心或库时才安装它们
+    private static List<Object> launchInputs(File pnxJar, File libDir) {
+        var inputs = jarInputs(pnxJar, libDir);
+        inputs.add(FileStamp.of(ConfigUtils.globalConfigFile));
+        return inputs;
     }
 
-    private GraalStatus getGraalStatus(JavaLocator.JavaInfo javaInfo) {
-        var vendor = javaInfo.getVendor().toLowerCase();
-        if (!vendor.contains("graal")) {
-            return GraalStatus.NotFound;
-        }
-        if (vendor.contains("oracle graalvm")) {
-            return GraalStatus.Oracle;
-        }
-        var index = vendor.indexOf("2", vendor.indexOf("graalvm"));
-        if (index == -1) {
-            return GraalStatus.NotFound;
+    // 热备只跟着核心和库走，改配置不会让正在跑的服务器被换掉
+    private static List<Object> jarInputs(File pnxJar, File libDir) {
+        var inputs = new ArrayList<Object>();
+        inputs.add(FileStamp.of(pnxJar));
+        var libs = libDir.listFiles((dir, name) -> name.endsWith(".jar"));
+        if (libs != null) {
+            Arrays.sort(libs, Comparator.comparing(File::getName));
+            for (var each : libs) {
+                inputs.add(FileStamp.of(each));
+            }
         }
-        var version = vendor.substring(index, index + 4);
-        return Integer.parseInt(version.replace(".", "")) < 222 ? GraalStatus.LowVersion : GraalStatus.Standard;
+        return inputs;
     }
 
-    private int start() {
-        System.gc();
+    private boolean useHotStandby() {
+        return hotStandby != null ? hotStandby : ConfigUtils.hotStandby();
+    }
+
+    private int start(List<String> startCommand) {
         try {
-            var useStdinFile = stdin != null && !"".equals(stdin.trim());
-            var builder = new ProcessBuilder().command(startCommand);
-            if (useStdinFile) {
-                builder.redirectOutput(ProcessBuilder.Redirect.INHERIT)
-                        .redirectError(ProcessBuilder.Redirect.INHERIT);
-            } else {
-                builder.inheritIO();
-            }
-            var process = builder.start();
+            var process = launch(startCommand);
+            attach(process);
             Main.pnxRunning = true;
-            if (useStdinFile) {
-                var stdinFile = new File(CLIConstant.userDir, stdin);
-                if (stdinFile.exists() && stdinFile.isFile() && stdinFile.canRead() && stdinFile.canWrite()) {
-                    Main.getTimer().scheduleAtFixedRate(new TimerTask() {
-                        long lastUpdateTime = -1;
-
-                        @Override
-                        public void run() {
-                            try {
-                                if (!process.isAlive()) {
-                                    this.cancel();
-                                }
-                                if (stdinFile.lastModified() > lastUpdateTime) {
-                                    var tmp = Files.readAllBytes(stdinFile.toPath());
-                                    process.getOutputStream().write(tmp);
-                                    process.getOutputStream().flush();
-                                    try (var fileWriter = new FileWriter(stdinFile)) {
-                                        fileWriter.write("");// 清空
-                                        fileWriter.flush();
-                                    }
-                                    lastUpdateTime = stdinFile.lastModified();
-                                }
-                            } catch (Exception ignore) {
-
-                            }
-                        }
-                    }, 1000, 1000);
-                }
-            }
             int exitValue = process.waitFor();
             Main.pnxRunning = false;
+            Logger.event("exit", "code", exitValue, "policy", "stop");
             return exitValue;
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
@@ -212,4 +373,85 @@ public final class StartCommand implements Callable<Integer> {
             return 1;
         }
     }
+
+    private Process launch(List<String> startCommand) throws IOException {
+        System.gc();
+        Logger.event("launch", "argv", startCommand);
+        // PNX writes to the same console, our log lines must be out before its first one
+        Logger.flush();
+        var builder = new ProcessBuilder().command(startCommand);
+        // 热备交接时要往旧服务器的控制台写stop，所以标准输入由我们转发
+        var pipeOutput = consoleBridge != null || pumpOutput;
+        if (useStdinFile() || useHotStandby() || pipeOutput) {
+            builder.redirectOutput(pipeOutput ? ProcessBuilder.Redirect.PIPE : ProcessBuilder.Redirect.INHERIT)
+                    .redirectError(pumpOutput ? ProcessBuilder.Redirect.PIPE : ProcessBuilder.Redirect.INHERIT);
+        } else {
+            builder.inheritIO();
+        }
+        var process = builder.start();
+        if (pipeOutput) {
+            var stdout = process.getInputStream();
+            Thread.ofVirtual().name("pnx-stdout").start(() -> ConsoleOutput.pump(stdout));
+        }
+        if (pumpOutput) {
+            var stderr = process.getErrorStream();
+            Thread.ofVirtual().name("pnx-stderr").start(() -> ConsoleOutput.pump(stderr));
+        }
+        return process;
+    }
+
+    private void openOutputPump() {
+        if (!(outputPump != null ? outputPump : ConfigUtils.outputPump())) {
+            return;
+        }
+        OutputPump.Overflow overflow;
+        try {
+            overflow = OutputPump.Overflow.valueOf(ConfigUtils.outputOverflow().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            overflow = OutputPump.Overflow.SUMMARY;
+        }
+        var capacity = Math.clamp(ConfigUtils.outputBufferSize(), 64 * 1024, Integer.MAX_VALUE - 8);
+        var pump = new OutputPump(capacity, overflow);
+        pump.addSink("terminal", Logger.isJson() ? new JsonLineOutputStream(System.out, "server") : System.out);
+        var consoleLog = ConfigUtils.consoleLog().trim();
+        if (!consoleLog.isEmpty()) {
+            var logFile = CLIConstant.userDir.toPath().resolve(consoleLog).toFile();
+            pump.addSink("log", new RotatingLog(logFile, ConfigUtils.consoleLogSize(), ConfigUtils.consoleLogFiles()));
+            Logger.info(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("output-pump-log"), logFile.getAbsolutePath())).fgDefault());
+        }
+        ConsoleOutput.pumpThrough(pump);
+        pumpOutput = true;
+    }
+
+    private void openConsoleBridge() {
+        var socket = consoleSocket != null ? consoleSocket : ConfigUtils.consoleSocket();
+        if (socket == null || socket.isBlank()) {
+            return;
+        }
+        var path = CLIConstant.userDir.toPath().resolve(socket.trim()).toAbsolutePath().normalize();
+        try {
+            consoleBridge = ConsoleBridge.open(path);
+            ConsoleOutput.mirrorTo(consoleBridge);
+            Logger.info(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("console-bridge"), path)).fgDefault());
+        } catch (IOException | UnsupportedOperationException e) {
+            Logger.warn(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("console-bridge-fail"), path, e.getMessage())).fgDefault());
+        }
+    }
+
+    private boolean useStdinFile() {
+        return stdin != null && !"".equals(stdin.trim());
+    }
+
+    private void attach(Process process) {
+        ConsoleForwarder.forwardTo(process);
+        if (useHotStandby() || consoleBridge != null || pumpOutput) {
+            ConsoleForwarder.forwardSystemIn();
+        }
+        if (useStdinFile()) {
+            var stdinFile = new File(CLIConstant.userDir, stdin);
+            if (stdinFile.exists() && !stdinFile.isDirectory() && stdinFile.canRead()) {
+                StdinFileForwarder.start(stdinFile);
+            }
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package cn.powernukkitx.cli.data.builder;
+
+import cn.powernukkitx.cli.util.CGroupUtils;
+import cn.powernukkitx.cli.util.StringUtils;
+import com.sun.management.OperatingSystemMXBean;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.management.ManagementFactory;
+
+// heap, direct memory and gc threads for the PNX server, derived from what the host or container really gives us
+public record JVMSizing(
+        long availableMemory,
+        boolean memoryLimited,
+        int processors,
+        boolean cpuLimited,
+        long heap,
+        boolean heapConfigured,
+        long maxDirectMemory,
+        long softMaxHeap,
+        int concGCThreads
+) {
+    private static final long MB = 1024 * 1024;
+    private static final long MIN_RESERVE = 256 * MB;
+    private static final long MIN_HEAP = 128 * MB;
+
+    @Contract("_ -> new")
+    public static @NotNull JVMSizing detect(@Nullable String configuredHeap) {
+        var bean = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        var physical = bean.getTotalMemorySize();
+        var memoryLimit = CGroupUtils.memoryLimit();
+        var memoryLimited = memoryLimit.isPresent() && memoryLimit.getAsLong() < physical;
+        var available = memoryLimited ? memoryLimit.getAsLong() : physical;
+        var hostProcessors = Runtime.getRuntime().availableProcessors();
+        var cpuLimit = CGroupUtils.cpuLimit();
+        var cpuLimited = cpuLimit.isPresent() && Math.ceil(cpuLimit.getAsDouble()) < hostProcessors;
+        var processors = cpuLimited ? (int) Math.max(1, Math.ceil(cpuLimit.getAsDouble())) : hostProcessors;
+        return compute(available, memoryLimited, processors, cpuLimited, configuredHeap);
+    }
+
+    @Contract("_, _, _, _, _ -> new")
+    public static @NotNull JVMSizing compute(long available, boolean memoryLimited, int processors, boolean cpuLimited, @Nullable String configuredHeap) {
+        // a quarter (at least 256MB) stays outside the heap for metaspace, direct buffers, thread stacks and the page cache
+        var reserve = Math.max(MIN_RESERVE, available / 4);
+        var heap = Math.max(MIN_HEAP, available - reserve);
+        var heapConfigured = false;
+        if (configuredHeap != null && !configuredHeap.isBlank()) {
+            try {
+                // an explicit vmMemory wins unless it does not fit into the container at all
+                heap = Math.min(StringUtils.parseBytes(configuredHeap), Math.max(MIN_HEAP, available - MIN_RESERVE));
+                heapConfigured = true;
+            } catch (NumberFormatException ignore) {
+
+            }
+        }
+        var maxDirectMemory = Math.max(64 * MB, Math.min(reserve / 2, available - heap - 64 * MB));
+        // ZGC starts collecting earlier than Xmx, which leaves headroom for allocation spikes
+        var softMaxHeap = heap - heap / 10;
+        var concGCThreads = Math.max(1, processors / 4);
+        return new JVMSizing(available, memoryLimited, processors, cpuLimited, heap, heapConfigured, maxDirectMemory, softMaxHeap, concGCThreads);
+    }
+
+    public static @NotNull String toJVMSize(long bytes) {
+        return Math.max(1, bytes / MB) + "m";
+    }
+}
@@ -1,13 +1,17 @@
 package cn.powernukkitx.cli.data.builder;
 
 import cn.powernukkitx.cli.util.StringUtils;
-import com.sun.management.OperatingSystemMXBean;
 
 import java.io.File;
-import java.lang.management.ManagementFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 
 public final class JVMStartCommandBuilder {
+    private static final int ARG_FILE_THRESHOLD = 4096;
+
     private File jvmExecutable;
     private Map<String, String> properties = new LinkedHashMap<>(); // -Dxxx=xxx
     private Map<String, Object> xxOptions = new LinkedHashMap<>(); // -XX:
@@ -18,11 +22,22 @@ public final class JVMStartCommandBuilder {
     private Map<String, String> addOpens = new LinkedHashMap<>();
     private List<String> otherArgs = new ArrayList<>(0);
     private String startTarget;
+    private File argFile = null;
 
     public JVMStartCommandBuilder useMaxPhysicalMemory() {
-        var osMxb = (OperatingSystemMXBean) ManagementFactory
-                .getOperatingSystemMXBean();
-        addXOption("mx" + (osMxb.getTotalMemorySize() / 1024 / 1024) + "m");
+        addXOption("mx" + JVMSizing.toJVMSize(JVMSizing.detect(null).availableMemory()));
+        return this;
+    }
+
+    // call after the GC has been chosen, ZGC gets its own knobs
+    public JVMStartCommandBuilder applySizing(JVMSizing sizing) {
+        addXOption("mx", JVMSizing.toJVMSize(sizing.heap()));
+        addXxOption("MaxDirectMemorySize", JVMSizing.toJVMSize(sizing.maxDirectMemory()));
+        addXxOption("ActiveProcessorCount", sizing.processors());
+        if (Boolean.TRUE.equals(getXxOption("UseZGC", Boolean.class))) {
+            addXxOption("SoftMaxHeapSize", JVMSizing.toJVMSize(sizing.softMaxHeap()));
+            addXxOption("ConcGCThreads", sizing.concGCThreads());
+        }
         return this;
     }
 
@@ -211,63 +226,89 @@ public final class JVMStartCommandBuilder {
         return this;
     }
 
+    public JVMStartCommandBuilder setArgFile(File argFile) {
+        this.argFile = argFile;
+        return this;
+    }
+
+    // only for displaying, launch with buildArgv()
     public String build() {
         var sb = new StringBuilder();
-        sb.append(StringUtils.tryWrapQuotation(jvmExecutable.getAbsolutePath())).append(" ");
-        for (var entry : properties.entrySet()) {
-            sb.append(StringUtils.tryWrapQuotation("-D" + entry.getKey() + "=" + entry.getValue())).append(" ");
-        }
-        for (var iterator = otherArgs.iterator(); iterator.hasNext(); ) {
-            var each = iterator.next();
-            if (each.startsWith("-D")) {
-                sb.append(StringUtils.tryWrapQuotation(each)).append(" ");
-                iterator.remove();
+        for (var arg : buildArgv()) {
+            if (!sb.isEmpty()) {
+                sb.append(" ");
             }
+            sb.append(StringUtils.tryWrapQuotation(arg));
+        }
+        return sb.toString();
+    }
+
+    public List<String> buildArgv() {
+        var argv = new ArrayList<String>();
+        var remaining = new ArrayList<>(otherArgs);
+        argv.add(jvmExecutable.getAbsolutePath());
+        for (var entry : properties.entrySet()) {
+            argv.add("-D" + entry.getKey() + "=" + entry.getValue());
         }
+        takeArgs(remaining, "-D", argv);
         for (var entry : xxOptions.entrySet()) {
-            sb.append("-XX:");
-            if (entry.getValue() != null) {
-                if (entry.getValue() instanceof Boolean bool) {
-                    sb.append(bool ? "+" : "-").append(entry.getKey());
-                } else {
-                    sb.append(entry.getKey()).append("=").append(entry.getValue());
-                }
+            if (entry.getValue() == null) {
+                argv.add("-XX:" + entry.getKey());
+            } else if (entry.getValue() instanceof Boolean bool) {
+                argv.add("-XX:" + (bool ? "+" : "-") + entry.getKey());
             } else {
-                sb.append(entry.getKey());
-            }
-            sb.append(" ");
-        }
-        for (var iterator = otherArgs.iterator(); iterator.hasNext(); ) {
-            var each = iterator.next();
-            if (each.startsWith("-XX:")) {
-                sb.append(each).append(" ");
-                iterator.remove();
+                argv.add("-XX:" + entry.getKey() + "=" + entry.getValue());
             }
         }
+        takeArgs(remaining, "-XX:", argv);
         for (var entry : xOptions.entrySet()) {
-            sb.append("-X").append(entry.getKey());
-            if (entry.getValue() != null) {
-                sb.append(entry.getValue());
-            }
-            sb.append(" ");
+            argv.add("-X" + entry.getKey() + (entry.getValue() != null ? entry.getValue() : ""));
+        }
+        takeArgs(remaining, "-X", argv);
+        // empty module paths are not only useless, --upgrade-module-path also stops class data sharing from dumping
+        if (!modulePath.isEmpty()) {
+            argv.add("--module-path=" + String.join(File.pathSeparator, modulePath) + File.pathSeparator);
+        }
+        if (!upgradeModulePath.isEmpty()) {
+            argv.add("--upgrade-module-path=" + String.join(File.pathSeparator, upgradeModulePath) + File.pathSeparator);
+        }
+        for (var entry : addOpens.entrySet()) {
+            argv.add("--add-opens");
+            argv.add(entry.getKey() + "=" + entry.getValue());
         }
-        for (var iterator = otherArgs.iterator(); iterator.hasNext(); ) {
+        var cp = String.join(File.pathSeparator, classPath);
+        if (argFile != null && cp.length() > ARG_FILE_THRESHOLD) {
+            argv.add("@" + writeArgFile(cp).getAbsolutePath());
+        } else {
+            argv.add("-cp");
+            argv.add(cp);
+        }
+        argv.add(startTarget);
+        argv.addAll(remaining);
+        return argv;
+    }
+
+    private static void takeArgs(List<String> remaining, String prefix, List<String> argv) {
+        for (var iterator = remaining.iterator(); iterator.hasNext(); ) {
             var each = iterator.next();
-            if (each.startsWith("-X")) {
-                sb.append(each).append(" ");
+            if (each.startsWith(prefix)) {
+                argv.add(each);
                 iterator.remove();
             }
         }
-        sb.append(StringUtils.tryWrapQuotation("--module-path=" + String.join(File.pathSeparator, modulePath) + File.pathSeparator)).append(" ");
-        sb.append(StringUtils.tryWrapQuotation("--upgrade-module-path=" + String.join(File.pathSeparator, upgradeModulePath) + File.pathSeparator)).append(" ");
-        for (var entry : addOpens.entrySet()) {
-            sb.append("--add-opens ").append(entry.getKey()).append("=").append(entry.getValue()).append(" ");
-        }
-        sb.append("-cp ").append(StringUtils.tryWrapQuotation(String.join(File.pathSeparator, classPath))).append(" ");
-        sb.append(startTarget);
-        for (var arg : otherArgs) {
-            sb.append(" ").append(StringUtils.tryWrapQuotation(arg));
+    }
+
+    // Windows limits the whole command line to 32k chars, the classpath alone can get close to that
+    private File writeArgFile(String cp) {
+        // inside quotes of an arg file the backslash is an escape character
+        var content = "-cp\n\"" + cp.replace("\\", "\\\\").replace("\"", "\\\"") + "\"\n";
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            argFile.getAbsoluteFile().getParentFile().mkdirs();
+            Files.writeString(argFile.toPath(), content, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return sb.toString();
+        return argFile;
     }
 }
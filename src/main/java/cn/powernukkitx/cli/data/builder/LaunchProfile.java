@@ -0,0 +1,124 @@
+package cn.powernukkitx.cli.data.builder;
+
+import cn.powernukkitx.cli.data.locator.JavaLocator;
+import cn.powernukkitx.cli.util.OSUtils;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// named sets of -XX flags shipped in profiles.json, each flag may be limited to some java versions, an os or a vendor
+public record LaunchProfile(
+        String name,
+        int version,
+        String description,
+        int minJava,
+        List<Option> options
+) {
+    private static Map<String, LaunchProfile> profiles = null;
+
+    public record Option(String flag, Object value, int since, int until, @Nullable String os, @Nullable String vendor) {
+        @Contract("_ -> new")
+        public static @NotNull Option from(@NotNull JsonObject jsonObject) {
+            var value = jsonObject.get("value").getAsJsonPrimitive();
+            return new Option(
+                    jsonObject.get("flag").getAsString(),
+                    toValue(value),
+                    jsonObject.has("since") ? jsonObject.get("since").getAsInt() : 0,
+                    jsonObject.has("until") ? jsonObject.get("until").getAsInt() : Integer.MAX_VALUE,
+                    jsonObject.has("os") ? jsonObject.get("os").getAsString() : null,
+                    jsonObject.has("vendor") ? jsonObject.get("vendor").getAsString() : null
+            );
+        }
+
+        private static Object toValue(JsonPrimitive value) {
+            if (value.isBoolean()) {
+                return value.getAsBoolean();
+            } else if (value.isNumber()) {
+                return value.getAsLong();
+            }
+            return value.getAsString();
+        }
+
+        public boolean appliesTo(int javaVersion, @NotNull String javaVendor) {
+            if (javaVersion < since || javaVersion > until) {
+                return false;
+            }
+            if (os != null && !OSUtils.getOS().name().equalsIgnoreCase(os)) {
+                return false;
+            }
+            return vendor == null || javaVendor.toLowerCase().contains(vendor.toLowerCase());
+        }
+    }
+
+    @Contract("_, _ -> new")
+    public static @NotNull LaunchProfile from(@NotNull String name, @NotNull JsonObject jsonObject) {
+        var options = new ArrayList<Option>();
+        for (var each : jsonObject.get("options").getAsJsonArray()) {
+            options.add(Option.from(each.getAsJsonObject()));
+        }
+        return new LaunchProfile(
+                name,
+                jsonObject.get("version").getAsInt(),
+                jsonObject.get("description").getAsString(),
+                jsonObject.has("minJava") ? jsonObject.get("minJava").getAsInt() : 0,
+                Collections.unmodifiableList(options)
+        );
+    }
+
+    public static synchronized @NotNull Map<String, LaunchProfile> getAll() {
+        if (profiles == null) {
+            var map = new LinkedHashMap<String, LaunchProfile>();
+            try (var stream = LaunchProfile.class.getResourceAsStream("profiles.json")) {
+                if (stream != null) {
+                    var json = JsonParser.parseReader(new InputStreamReader(stream, StandardCharsets.UTF_8)).getAsJsonObject();
+                    for (var entry : json.entrySet()) {
+                        map.put(entry.getKey(), from(entry.getKey(), entry.getValue().getAsJsonObject()));
+                    }
+                }
+            } catch (IOException ignore) {
+
+            }
+            profiles = Collections.unmodifiableMap(map);
+        }
+        return profiles;
+    }
+
+    public static Optional<LaunchProfile> get(@NotNull String name) {
+        return Optional.ofNullable(getAll().get(name.toLowerCase()));
+    }
+
+    public boolean supports(@NotNull JavaLocator.JavaInfo javaInfo) {
+        return majorVersionOf(javaInfo) >= minJava;
+    }
+
+    // returns the flags left out because the jvm does not support them
+    public @NotNull List<String> apply(@NotNull JVMStartCommandBuilder builder, @NotNull JavaLocator.JavaInfo javaInfo) {
+        var skipped = new ArrayList<String>();
+        var javaVersion = majorVersionOf(javaInfo);
+        for (var option : options) {
+            if (option.appliesTo(javaVersion, javaInfo.getVendor())) {
+                builder.addXxOption(option.flag(), option.value());
+            } else if (option.os() == null || option.os().equalsIgnoreCase(OSUtils.getOS().name())) {
+                // a flag for another os is expected to be missing, only report version and vendor mismatches
+                skipped.add(option.flag());
+            }
+        }
+        return skipped;
+    }
+
+    private static int majorVersionOf(JavaLocator.JavaInfo javaInfo) {
+        try {
+            return Integer.parseInt(javaInfo.getMajorVersion());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package cn.powernukkitx.cli.data.cache;
+
+import cn.powernukkitx.cli.CLIConstant;
+import cn.powernukkitx.cli.data.builder.JVMStartCommandBuilder;
+import cn.powernukkitx.cli.data.locator.JavaLocator;
+import cn.powernukkitx.cli.util.FileUtils;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+// dynamic AppCDS archives of one server dir, named after the jvm and the exact jar set they were dumped with
+public final class AppCDS {
+    private final File dir;
+
+    public AppCDS(@NotNull File dir) {
+        this.dir = dir;
+    }
+
+    @Contract("_ -> new")
+    public static @NotNull AppCDS forServer(@NotNull File serverDir) {
+        return new AppCDS(new File(new File(CLIConstant.cacheDir, "cds"), Integer.toHexString(serverDir.getAbsolutePath().hashCode())));
+    }
+
+    public record Plan(File archive, boolean exists) {
+        public void applyTo(@NotNull JVMStartCommandBuilder builder) {
+            if (exists) {
+                builder.addXxOption("SharedArchiveFile", archive.getAbsolutePath());
+            } else {
+                builder.addXxOption("ArchiveClassesAtExit", archive.getAbsolutePath());
+            }
+        }
+    }
+
+    // the classpath has to be the exact, ordered list of jars the server runs with, wildcards are expanded in directory order
+    public @NotNull Plan plan(@NotNull File javaExecutable, @NotNull JavaLocator.JavaInfo javaInfo, @NotNull List<File> classPath) {
+        var archive = new File(dir, key(javaExecutable, javaInfo, classPath) + ".jsa");
+        if (archive.isFile() && archive.length() > 0) {
+            return new Plan(archive, true);
+        }
+        // the jvm or a jar changed, older archives will never match again
+        var old = dir.listFiles((d, name) -> name.endsWith(".jsa"));
+        if (old != null) {
+            for (var each : old) {
+                //noinspection ResultOfMethodCallIgnored
+                each.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        dir.mkdirs();
+        return new Plan(archive, false);
+    }
+
+    private static String key(File javaExecutable, JavaLocator.JavaInfo javaInfo, List<File> classPath) {
+        try {
+            var digest = MessageDigest.getInstance("MD5");
+            update(digest, javaExecutable.getAbsolutePath());
+            update(digest, String.valueOf(FileStamp.of(javaExecutable)));
+            update(digest, javaInfo.getFullVersion());
+            update(digest, javaInfo.getVendor());
+            for (var each : classPath) {
+                update(digest, each.getAbsolutePath());
+                update(digest, each.length() + ":" + each.lastModified());
+            }
+            return FileUtils.bytesToHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,281 @@
+package cn.powernukkitx.cli.data.cache;
+
+import cn.powernukkitx.cli.CLIConstant;
+import cn.powernukkitx.cli.data.bean.RemoteFileBean;
+import cn.powernukkitx.cli.util.ConfigUtils;
+import cn.powernukkitx.cli.util.FileUtils;
+import cn.powernukkitx.cli.util.HttpUtils;
+import cn.powernukkitx.cli.util.Logger;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+import static org.fusesource.jansi.Ansi.ansi;
+
+public final class ArtifactCache {
+    private static final ResourceBundle bundle = ResourceBundle.getBundle("cn.powernukkitx.cli.data.cache.ArtifactCache");
+    private static ArtifactCache instance = null;
+
+    private final File root;
+    private final File objectsDir;
+    private final File tmpDir;
+    private final File indexFile;
+    private final File lockFile;
+    private final long budget;
+    private final Map<String, Entry> index = new LinkedHashMap<>();
+
+    public ArtifactCache(@NotNull File root, long budget) {
+        this.root = root;
+        this.objectsDir = new File(root, "objects");
+        this.tmpDir = new File(root, "tmp");
+        this.indexFile = new File(root, "objects.json");
+        this.lockFile = new File(root, "objects.lock");
+        this.budget = budget;
+    }
+
+    public static synchronized @NotNull ArtifactCache getInstance() {
+        if (instance == null) {
+            instance = new ArtifactCache(CLIConstant.cacheDir, ConfigUtils.cacheSize());
+        }
+        return instance;
+    }
+
+    public @NotNull File objectFile(@NotNull String md5) {
+        // objects/ab/cdef...
+        var key = md5.toLowerCase();
+        return new File(new File(objectsDir, key.substring(0, 2)), key.substring(2));
+    }
+
+    public Optional<File> lookup(@NotNull String md5) {
+        try {
+            return locked(() -> lookupLocked(md5));
+        } catch (IOException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+            return Optional.empty();
+        }
+    }
+
+    public boolean linkTo(@NotNull String md5, @NotNull File target) {
+        try {
+            return locked(() -> linkLocked(md5, target));
+        } catch (IOException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+            return false;
+        }
+    }
+
+    public boolean put(@NotNull String md5, @NotNull File source) {
+        try {
+            if (!md5.equalsIgnoreCase(FileHashIndex.getInstance().md5(source))) {
+                return false;
+            }
+            return locked(() -> {
+                var object = objectFile(md5);
+                if (!object.isFile()) {
+                    //noinspection ResultOfMethodCallIgnored
+                    object.getParentFile().mkdirs();
+                    try {
+                        Files.createLink(object.toPath(), source.toPath());
+                    } catch (IOException | UnsupportedOperationException e) {
+                        //noinspection ResultOfMethodCallIgnored
+                        tmpDir.mkdirs();
+                        var tmp = File.createTempFile(md5, null, tmpDir).toPath();
+                        Files.copy(source.toPath(), tmp, StandardCopyOption.REPLACE_EXISTING);
+                        Files.move(tmp, object.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                    }
+                }
+                touch(md5, object.length());
+                evict();
+                return true;
+            });
+        } catch (IOException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+            return false;
+        }
+    }
+
+    public boolean fetch(@NotNull RemoteFileBean remoteFile, @NotNull File target, @NotNull Timer timer) {
+        return fetch(remoteFile, target, download -> HttpUtils.downloadWithBar(remoteFile.downloadID(), download, remoteFile.fileName(), remoteFile.size(), timer), true);
+    }
+
+    public boolean fetch(@NotNull RemoteFileBean remoteFile, @NotNull File target, @NotNull AtomicLong downloaded, int connections) {
+        return fetch(remoteFile, target, download -> HttpUtils.download(remoteFile.downloadID(), download, downloaded, connections), false);
+    }
+
+    private boolean fetch(RemoteFileBean remoteFile, File target, Predicate<File> downloader, boolean verbose) {
+        if (linkTo(remoteFile.md5(), target)) {
+            if (verbose) {
+                Logger.info(ansi().fgBrightGreen().a(new Formatter().format(bundle.getString("hit"), remoteFile.fileName())).fgDefault());
+            }
+            return true;
+        }
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            tmpDir.mkdirs();
+            var download = new File(tmpDir, remoteFile.md5().toLowerCase() + ".download");
+            if (!downloader.test(download)) {
+                return false;
+            }
+            if (!remoteFile.md5().equalsIgnoreCase(FileUtils.getMD5(download))) {
+                Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("corrupted"), remoteFile.fileName())).fgDefault());
+                Files.deleteIfExists(download.toPath());
+                return false;
+            }
+            return locked(() -> {
+                var object = objectFile(remoteFile.md5());
+                //noinspection ResultOfMethodCallIgnored
+                object.getParentFile().mkdirs();
+                Files.move(download.toPath(), object.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                touch(remoteFile.md5(), object.length());
+                var linked = linkLocked(remoteFile.md5(), target);
+                evict();
+                return linked;
+            });
+        } catch (IOException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+            return false;
+        }
+    }
+
+    // the store is shared by every CLI on the host: one lock file guards the objects and objects.json, the index is re-read under it
+    private synchronized <T> T locked(Locked<T> action) throws IOException {
+        //noinspection ResultOfMethodCallIgnored
+        root.mkdirs();
+        try (var channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             var ignored = channel.lock()) {
+            loadIndex();
+            return action.run();
+        }
+    }
+
+    private Optional<File> lookupLocked(String md5) {
+        var file = objectFile(md5);
+        if (!file.isFile()) {
+            if (index.remove(md5.toLowerCase()) != null) {
+                saveIndex();
+            }
+            return Optional.empty();
+        }
+        touch(md5, file.length());
+        return Optional.of(file);
+    }
+
+    private boolean linkLocked(String md5, File target) throws IOException {
+        var object = lookupLocked(md5);
+        if (object.isEmpty()) {
+            return false;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        target.getAbsoluteFile().getParentFile().mkdirs();
+        Files.deleteIfExists(target.toPath());
+        try {
+            // several server dirs on one host share a single copy of each file
+            Files.createLink(target.toPath(), object.get().toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(object.get().toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return true;
+    }
+
+    private void touch(String md5, long size) {
+        index.put(md5.toLowerCase(), new Entry(size, System.currentTimeMillis()));
+        saveIndex();
+    }
+
+    private void evict() {
+        long total = 0;
+        for (var entry : index.values()) {
+            total += entry.size();
+        }
+        if (total <= budget) {
+            return;
+        }
+        var byAccess = new ArrayList<>(index.entrySet());
+        byAccess.sort(Comparator.comparingLong(e -> e.getValue().lastAccess()));
+        for (var each : byAccess) {
+            if (total <= budget) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(objectFile(each.getKey()).toPath());
+                index.remove(each.getKey());
+                total -= each.getValue().size();
+            } catch (IOException ignore) {
+
+            }
+        }
+        saveIndex();
+    }
+
+    private void loadIndex() {
+        index.clear();
+        if (indexFile.isFile()) {
+            try {
+                var json = JsonParser.parseString(Files.readString(indexFile.toPath(), StandardCharsets.UTF_8)).getAsJsonObject();
+                for (var entry : json.entrySet()) {
+                    var value = entry.getValue().getAsJsonObject();
+                    index.put(entry.getKey(), new Entry(value.get("size").getAsLong(), value.get("lastAccess").getAsLong()));
+                }
+                return;
+            } catch (Exception ignore) {
+
+            }
+        }
+        // rebuild from the objects on disk, oldest modification first
+        var dirs = objectsDir.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return;
+        }
+        for (var dir : dirs) {
+            var files = dir.listFiles(File::isFile);
+            if (files == null) continue;
+            for (var file : files) {
+                index.put(dir.getName() + file.getName(), new Entry(file.length(), file.lastModified()));
+            }
+        }
+    }
+
+    private void saveIndex() {
+        var json = new JsonObject();
+        for (var entry : index.entrySet()) {
+            var value = new JsonObject();
+            value.addProperty("size", entry.getValue().size());
+            value.addProperty("lastAccess", entry.getValue().lastAccess());
+            json.add(entry.getKey(), value);
+        }
+        try {
+            FileUtils.writeAtomically(indexFile, json.toString());
+        } catch (IOException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private interface Locked<T> {
+        T run() throws IOException;
+    }
+
+    private record Entry(long size, long lastAccess) {
+    }
+}
@@ -0,0 +1,137 @@
+package cn.powernukkitx.cli.data.cache;
+
+import cn.powernukkitx.cli.CLIConstant;
+import cn.powernukkitx.cli.util.FileUtils;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+
+// md5 of local files, only recomputed when the (path, size, mtime, inode) stamp of a file changes
+public final class FileHashIndex {
+    private static FileHashIndex instance = null;
+
+    private final File indexFile;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public FileHashIndex(@NotNull File indexFile) {
+        this.indexFile = indexFile;
+        load();
+    }
+
+    public static synchronized @NotNull FileHashIndex getInstance() {
+        if (instance == null) {
+            instance = new FileHashIndex(new File(CLIConstant.cacheDir, "hashes.json"));
+        }
+        return instance;
+    }
+
+    public @NotNull String md5(@NotNull File file) throws IOException {
+        var md5 = compute(file);
+        save();
+        return md5;
+    }
+
+    public @NotNull Map<File, String> md5All(@NotNull Collection<File> files) throws IOException {
+        var tasks = new LinkedHashMap<File, ForkJoinTask<String>>(files.size());
+        var pool = ForkJoinPool.commonPool();
+        for (var file : files) {
+            tasks.put(file, pool.submit(() -> {
+                try {
+                    return compute(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        var result = new LinkedHashMap<File, String>(files.size());
+        try {
+            for (var entry : tasks.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().join());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            save();
+        }
+        return result;
+    }
+
+    private String compute(File file) throws IOException {
+        var stamp = FileStamp.of(file);
+        if (stamp == null) {
+            throw new IOException("Not a regular file: " + file);
+        }
+        var cached = index.get(stamp.path());
+        if (cached != null && cached.stamp().matches(stamp)) {
+            return cached.md5();
+        }
+        var md5 = FileUtils.getMD5(file);
+        // the file may have been rewritten while we were reading it
+        if (!stamp.matches(FileStamp.of(file))) {
+            return md5;
+        }
+        index.put(stamp.path(), new Entry(stamp, md5));
+        dirty.set(true);
+        return md5;
+    }
+
+    private void load() {
+        if (!indexFile.isFile()) {
+            return;
+        }
+        try {
+            var json = JsonParser.parseString(Files.readString(indexFile.toPath(), StandardCharsets.UTF_8)).getAsJsonArray();
+            for (var each : json) {
+                var jsonObject = each.getAsJsonObject();
+                var stamp = FileStamp.from(jsonObject.get("stamp").getAsJsonObject());
+                index.put(stamp.path(), new Entry(stamp, jsonObject.get("md5").getAsString()));
+            }
+        } catch (Exception e) {
+            index.clear();
+        }
+    }
+
+    public void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        var json = new JsonArray();
+        for (var entry : index.values()) {
+            // forget files that no longer exist
+            if (!new File(entry.stamp().path()).exists()) {
+                continue;
+            }
+            var jsonObject = new JsonObject();
+            jsonObject.add("stamp", entry.stamp().toJson());
+            jsonObject.addProperty("md5", entry.md5());
+            json.add(jsonObject);
+        }
+        try {
+            FileUtils.writeAtomically(indexFile, json.toString());
+        } catch (IOException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private record Entry(FileStamp stamp, String md5) {
+    }
+}
@@ -0,0 +1,58 @@
+package cn.powernukkitx.cli.data.cache;
+
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+// what we remember about a file to tell whether it changed since we last looked at it
+public record FileStamp(
+        String path,
+        long size,
+        long lastModified,
+        String inode
+) {
+    public static @Nullable FileStamp of(@NotNull File file) {
+        try {
+            var attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            var fileKey = attributes.fileKey();
+            return new FileStamp(file.getAbsolutePath(), attributes.size(), attributes.lastModifiedTime().toMillis(),
+                    fileKey == null ? "" : fileKey.toString());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Contract("_ -> new")
+    public static @NotNull FileStamp from(@NotNull JsonObject jsonObject) {
+        return new FileStamp(
+                jsonObject.get("path").getAsString(),
+                jsonObject.get("size").getAsLong(),
+                jsonObject.get("lastModified").getAsLong(),
+                jsonObject.get("inode").getAsString()
+        );
+    }
+
+    public @NotNull JsonObject toJson() {
+        var jsonObject = new JsonObject();
+        jsonObject.addProperty("path", path);
+        jsonObject.addProperty("size", size);
+        jsonObject.addProperty("lastModified", lastModified);
+        jsonObject.addProperty("inode", inode);
+        return jsonObject;
+    }
+
+    public boolean matches(@Nullable FileStamp other) {
+        return other != null && size == other.size && lastModified == other.lastModified
+                && Objects.equals(path, other.path) && Objects.equals(inode, other.inode);
+    }
+}
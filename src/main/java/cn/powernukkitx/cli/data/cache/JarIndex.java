@@ -0,0 +1,180 @@
+package cn.powernukkitx.cli.data.cache;
+
+import cn.powernukkitx.cli.CLIConstant;
+import cn.powernukkitx.cli.util.FileUtils;
+import cn.powernukkitx.cli.util.GitUtils;
+import cn.powernukkitx.cli.util.INIParser;
+import cn.powernukkitx.cli.util.ZipDirectory;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.JarFile;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+
+// which of the entries we asked about each jar contains, plus its git.properties, keyed by the stamp of the jar
+public final class JarIndex {
+    private static JarIndex instance = null;
+
+    private final File indexFile;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public JarIndex(@NotNull File indexFile) {
+        this.indexFile = indexFile;
+        load();
+    }
+
+    public static synchronized @NotNull JarIndex getInstance() {
+        if (instance == null) {
+            instance = new JarIndex(new File(CLIConstant.cacheDir, "jars.json"));
+        }
+        return instance;
+    }
+
+    public record Scan(boolean found, @Nullable GitUtils.FullGitInfo gitInfo) {
+    }
+
+    // found is true if the jar has any of the given entries
+    public @NotNull Scan scan(@NotNull File jar, @NotNull Collection<String> names) {
+        var stamp = FileStamp.of(jar);
+        if (stamp == null) {
+            return new Scan(false, null);
+        }
+        var entry = index.get(stamp.path());
+        if (entry == null || !entry.stamp().matches(stamp) || !entry.probes().keySet().containsAll(names)) {
+            entry = read(jar, stamp, names, entry != null && entry.stamp().matches(stamp) ? entry.probes() : Map.of());
+            index.put(stamp.path(), entry);
+            dirty.set(true);
+        }
+        var found = false;
+        for (var each : names) {
+            if (entry.probes().get(each)) {
+                found = true;
+                break;
+            }
+        }
+        return new Scan(found, entry.gitInfo());
+    }
+
+    private static Entry read(File jar, FileStamp stamp, Collection<String> names, Map<String, Boolean> knownProbes) {
+        var probes = new HashMap<>(knownProbes);
+        GitUtils.FullGitInfo gitInfo = null;
+        try (var zip = ZipDirectory.open(jar)) {
+            for (var each : names) {
+                probes.put(each, zip.contains(each));
+            }
+            var gitProperties = zip.read("git.properties");
+            if (gitProperties != null) {
+                try (var reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(gitProperties), StandardCharsets.UTF_8))) {
+                    gitInfo = GitUtils.toFullGitInfo(INIParser.parseINI(reader));
+                }
+            }
+        } catch (IOException e) {
+            // zip64 and whatever else the central directory reader does not handle
+            return readWithJarFile(jar, stamp, names, knownProbes);
+        }
+        return new Entry(stamp, probes, gitInfo);
+    }
+
+    private static Entry readWithJarFile(File jar, FileStamp stamp, Collection<String> names, Map<String, Boolean> knownProbes) {
+        var probes = new HashMap<>(knownProbes);
+        GitUtils.FullGitInfo gitInfo = null;
+        try (var jarFile = new JarFile(jar)) {
+            for (var each : names) {
+                probes.put(each, jarFile.getEntry(each) != null);
+            }
+            var gitProperties = jarFile.getEntry("git.properties");
+            if (gitProperties != null) {
+                try (var reader = new BufferedReader(new InputStreamReader(jarFile.getInputStream(gitProperties), StandardCharsets.UTF_8))) {
+                    gitInfo = GitUtils.toFullGitInfo(INIParser.parseINI(reader));
+                }
+            }
+        } catch (IOException e) {
+            // not a readable jar, remember that until it changes
+            for (var each : names) {
+                probes.put(each, false);
+            }
+        }
+        return new Entry(stamp, probes, gitInfo);
+    }
+
+    private void load() {
+        if (!indexFile.isFile()) {
+            return;
+        }
+        try {
+            var json = JsonParser.parseString(Files.readString(indexFile.toPath(), StandardCharsets.UTF_8)).getAsJsonArray();
+            for (var each : json) {
+                var jsonObject = each.getAsJsonObject();
+                var stamp = FileStamp.from(jsonObject.get("stamp").getAsJsonObject());
+                var probes = new HashMap<String, Boolean>();
+                for (var probe : jsonObject.get("probes").getAsJsonObject().entrySet()) {
+                    probes.put(probe.getKey(), probe.getValue().getAsBoolean());
+                }
+                GitUtils.FullGitInfo gitInfo = null;
+                if (jsonObject.has("git")) {
+                    var git = jsonObject.get("git").getAsJsonObject();
+                    gitInfo = new GitUtils.FullGitInfo().setTime(git.get("time").getAsString())
+                            .setMainVersion(git.get("mainVersion").getAsString())
+                            .setCommitID(git.get("commitID").getAsString())
+                            .setBranchID(git.get("branchID").getAsString());
+                }
+                index.put(stamp.path(), new Entry(stamp, probes, gitInfo));
+            }
+        } catch (Exception e) {
+            index.clear();
+        }
+    }
+
+    public void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        var json = new JsonArray();
+        for (var entry : index.values()) {
+            if (!new File(entry.stamp().path()).exists()) {
+                continue;
+            }
+            var jsonObject = new JsonObject();
+            jsonObject.add("stamp", entry.stamp().toJson());
+            var probes = new JsonObject();
+            entry.probes().forEach(probes::addProperty);
+            jsonObject.add("probes", probes);
+            if (entry.gitInfo() != null) {
+                var git = new JsonObject();
+                git.addProperty("time", entry.gitInfo().getTime());
+                git.addProperty("mainVersion", entry.gitInfo().getMainVersion());
+                git.addProperty("commitID", entry.gitInfo().getCommitID());
+                git.addProperty("branchID", entry.gitInfo().getBranchID());
+                jsonObject.add("git", git);
+            }
+            json.add(jsonObject);
+        }
+        try {
+            FileUtils.writeAtomically(indexFile, json.toString());
+        } catch (IOException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private record Entry(FileStamp stamp, Map<String, Boolean> probes, @Nullable GitUtils.FullGitInfo gitInfo) {
+    }
+}
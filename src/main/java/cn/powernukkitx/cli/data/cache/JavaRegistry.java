@@ -0,0 +1,109 @@
+package cn.powernukkitx.cli.data.cache;
+
+import cn.powernukkitx.cli.CLIConstant;
+import cn.powernukkitx.cli.data.locator.JavaLocator;
+import cn.powernukkitx.cli.util.FileUtils;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+
+// JavaInfo of every JVM we have probed, keyed by the stamp of its java executable
+public final class JavaRegistry {
+    private static JavaRegistry instance = null;
+
+    private final File registryFile;
+    private final Map<String, Entry> registry = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public JavaRegistry(@NotNull File registryFile) {
+        this.registryFile = registryFile;
+        load();
+    }
+
+    public static synchronized @NotNull JavaRegistry getInstance() {
+        if (instance == null) {
+            instance = new JavaRegistry(new File(CLIConstant.cacheDir, "jvms.json"));
+        }
+        return instance;
+    }
+
+    public Optional<JavaLocator.JavaInfo> get(@NotNull File javaExecutable) {
+        var stamp = FileStamp.of(javaExecutable);
+        if (stamp == null) {
+            return Optional.empty();
+        }
+        var entry = registry.get(stamp.path());
+        // earlier versions also kept vendorless guesses from jvmti.h, those are probed again
+        if (entry == null || !entry.stamp().matches(stamp) || "Unknown".equals(entry.info().getVendor())) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.info());
+    }
+
+    public void put(@NotNull File javaExecutable, @NotNull JavaLocator.JavaInfo info) {
+        var stamp = FileStamp.of(javaExecutable);
+        if (stamp == null) {
+            return;
+        }
+        registry.put(stamp.path(), new Entry(stamp, info));
+        dirty.set(true);
+    }
+
+    private void load() {
+        if (!registryFile.isFile()) {
+            return;
+        }
+        try {
+            var json = JsonParser.parseString(Files.readString(registryFile.toPath(), StandardCharsets.UTF_8)).getAsJsonArray();
+            for (var each : json) {
+                var jsonObject = each.getAsJsonObject();
+                var stamp = FileStamp.from(jsonObject.get("stamp").getAsJsonObject());
+                var info = new JavaLocator.JavaInfo(jsonObject.get("majorVersion").getAsString(),
+                        jsonObject.get("fullVersion").getAsString(), jsonObject.get("vendor").getAsString());
+                registry.put(stamp.path(), new Entry(stamp, info));
+            }
+        } catch (Exception e) {
+            registry.clear();
+        }
+    }
+
+    public void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        var json = new JsonArray();
+        for (var entry : registry.values()) {
+            if (!new File(entry.stamp().path()).exists()) {
+                continue;
+            }
+            var jsonObject = new JsonObject();
+            jsonObject.add("stamp", entry.stamp().toJson());
+            jsonObject.addProperty("majorVersion", entry.info().getMajorVersion());
+            jsonObject.addProperty("fullVersion", entry.info().getFullVersion());
+            jsonObject.addProperty("vendor", entry.info().getVendor());
+            json.add(jsonObject);
+        }
+        try {
+            FileUtils.writeAtomically(registryFile, json.toString());
+        } catch (IOException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private record Entry(FileStamp stamp, JavaLocator.JavaInfo info) {
+    }
+}
@@ -0,0 +1,298 @@
+package cn.powernukkitx.cli.data.installer;
+
+import cn.powernukkitx.cli.data.builder.JVMStartCommandBuilder;
+import cn.powernukkitx.cli.data.locator.GraalJITLocator;
+import cn.powernukkitx.cli.data.locator.GraalModuleLocator;
+import cn.powernukkitx.cli.data.locator.JavaLocator;
+import cn.powernukkitx.cli.data.locator.Location;
+import cn.powernukkitx.cli.util.FileUtils;
+import cn.powernukkitx.cli.util.HttpUtils;
+import cn.powernukkitx.cli.util.Logger;
+import cn.powernukkitx.cli.util.ZipDirectory;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+import static org.fusesource.jansi.Ansi.ansi;
+
+// optional jars described in components.json, installed into <server>/components/<name>
+public final class ComponentManager {
+    private static final ResourceBundle bundle = ResourceBundle.getBundle("cn.powernukkitx.cli.data.installer.Component");
+    private static Map<String, Component> components = null;
+
+    private final File componentsDir;
+
+    public ComponentManager(@NotNull File serverDir) {
+        this.componentsDir = new File(serverDir, "components");
+    }
+
+    public record RemoteFile(String name, String url, long size, @Nullable String sha1) {
+        @Contract("_ -> new")
+        public static @NotNull RemoteFile from(@NotNull JsonObject jsonObject) {
+            return new RemoteFile(
+                    jsonObject.get("name").getAsString(),
+                    jsonObject.get("url").getAsString(),
+                    jsonObject.has("size") ? jsonObject.get("size").getAsLong() : 0,
+                    jsonObject.has("sha1") ? jsonObject.get("sha1").getAsString() : null
+            );
+        }
+    }
+
+    public record Component(
+            String name,
+            String version,
+            String description,
+            int minJava,
+            int maxJava,
+            @Nullable String jvmModule,
+            List<String> modules,
+            List<RemoteFile> files
+    ) {
+        @Contract("_, _ -> new")
+        public static @NotNull Component from(@NotNull String name, @NotNull JsonObject jsonObject) {
+            var compatibility = jsonObject.has("compatibility") ? jsonObject.getAsJsonObject("compatibility") : new JsonObject();
+            var modules = new ArrayList<String>();
+            if (jsonObject.has("modules")) {
+                for (var each : jsonObject.getAsJsonArray("modules")) {
+                    modules.add(each.getAsString());
+                }
+            }
+            var files = new ArrayList<RemoteFile>();
+            for (var each : jsonObject.getAsJsonArray("files")) {
+                files.add(RemoteFile.from(each.getAsJsonObject()));
+            }
+            return new Component(
+                    name,
+                    jsonObject.get("version").getAsString(),
+                    jsonObject.get("description").getAsString(),
+                    compatibility.has("minJava") ? compatibility.get("minJava").getAsInt() : 0,
+                    compatibility.has("maxJava") ? compatibility.get("maxJava").getAsInt() : Integer.MAX_VALUE,
+                    compatibility.has("jvmModule") ? compatibility.get("jvmModule").getAsString() : null,
+                    Collections.unmodifiableList(modules),
+                    Collections.unmodifiableList(files)
+            );
+        }
+
+        public long size() {
+            long size = 0;
+            for (var each : files) size += each.size();
+            return size;
+        }
+    }
+
+    public enum GraalStatus {
+        NotFound,
+        Standard,
+        Oracle,
+        LowVersion
+    }
+
+    public enum Compatibility {
+        COMPATIBLE,
+        // the jvm already is a GraalVM with its own graal compiler
+        BUILT_IN,
+        OUTDATED_GRAALVM,
+        UNSUPPORTED_JAVA,
+        NO_JVMCI,
+        NOT_INSTALLED,
+        INCOMPLETE
+    }
+
+    public static synchronized @NotNull Map<String, Component> getAll() {
+        if (components == null) {
+            var map = new LinkedHashMap<String, Component>();
+            try (var stream = ComponentManager.class.getResourceAsStream("/cn/powernukkitx/cli/data/components.json")) {
+                if (stream != null) {
+                    var json = JsonParser.parseReader(new InputStreamReader(stream, StandardCharsets.UTF_8)).getAsJsonObject();
+                    for (var entry : json.entrySet()) {
+                        map.put(entry.getKey(), Component.from(entry.getKey(), entry.getValue().getAsJsonObject()));
+                    }
+                }
+            } catch (IOException ignore) {
+
+            }
+            components = Collections.unmodifiableMap(map);
+        }
+        return components;
+    }
+
+    public static Optional<Component> get(@NotNull String name) {
+        return Optional.ofNullable(getAll().get(name.toLowerCase()));
+    }
+
+    public static @NotNull GraalStatus getGraalStatus(@NotNull JavaLocator.JavaInfo javaInfo) {
+        var vendor = javaInfo.getVendor().toLowerCase();
+        if (!vendor.contains("graal")) {
+            return GraalStatus.NotFound;
+        }
+        if (vendor.contains("oracle graalvm")) {
+            return GraalStatus.Oracle;
+        }
+        var index = vendor.indexOf("2", vendor.indexOf("graalvm"));
+        if (index == -1 || index + 4 > vendor.length()) {
+            return GraalStatus.NotFound;
+        }
+        try {
+            var version = vendor.substring(index, index + 4);
+            return Integer.parseInt(version.replace(".", "")) < 222 ? GraalStatus.LowVersion : GraalStatus.Standard;
+        } catch (NumberFormatException e) {
+            return GraalStatus.NotFound;
+        }
+    }
+
+    public @NotNull File dirOf(@NotNull Component component) {
+        return new File(componentsDir, component.name());
+    }
+
+    public boolean isInstalled(@NotNull Component component) {
+        for (var each : component.files()) {
+            if (!new File(dirOf(component), each.name()).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the jvm is checked before the files, so list can tell users whether installing would help at all
+    public @NotNull Compatibility check(@NotNull Component component, @NotNull File javaExecutable, @NotNull JavaLocator.JavaInfo javaInfo) {
+        var graalStatus = getGraalStatus(javaInfo);
+        if (graalStatus == GraalStatus.Standard || graalStatus == GraalStatus.Oracle) {
+            return Compatibility.BUILT_IN;
+        }
+        if (graalStatus == GraalStatus.LowVersion) {
+            return Compatibility.OUTDATED_GRAALVM;
+        }
+        int javaVersion;
+        try {
+            javaVersion = Integer.parseInt(javaInfo.getMajorVersion());
+        } catch (NumberFormatException e) {
+            return Compatibility.UNSUPPORTED_JAVA;
+        }
+        if (javaVersion < component.minJava() || javaVersion > component.maxJava()) {
+            return Compatibility.UNSUPPORTED_JAVA;
+        }
+        if (component.jvmModule() != null && !jvmModules(javaExecutable).contains(component.jvmModule())) {
+            return Compatibility.NO_JVMCI;
+        }
+        if (!isInstalled(component)) {
+            return Compatibility.NOT_INSTALLED;
+        }
+        if (new GraalJITLocator().locate().isEmpty() || new GraalModuleLocator(component.modules()).locate().size() < component.modules().size()) {
+            return Compatibility.INCOMPLETE;
+        }
+        return Compatibility.COMPATIBLE;
+    }
+
+    // puts the graal compiler on the upgrade module path and lets JVMCI replace C2 with it
+    public @NotNull Compatibility wireGraalJIT(@NotNull JVMStartCommandBuilder builder, @NotNull File javaExecutable, @NotNull JavaLocator.JavaInfo javaInfo) {
+        var component = get("graaljit");
+        if (component.isEmpty()) {
+            return Compatibility.NOT_INSTALLED;
+        }
+        var compatibility = check(component.get(), javaExecutable, javaInfo);
+        if (compatibility != Compatibility.COMPATIBLE) {
+            return compatibility;
+        }
+        for (var each : new GraalJITLocator().locate()) {
+            builder.addUpgradeModuleArgs(each.getFile().toPath().toAbsolutePath().normalize().toString());
+        }
+        for (var each : new GraalModuleLocator(component.get().modules()).locate()) {
+            builder.addModulePath(each.getFile().toPath().toAbsolutePath().normalize().toString());
+        }
+        builder.addXxOption("UnlockExperimentalVMOptions", true);
+        builder.addXxOption("EnableJVMCI", true);
+        builder.addXxOption("UseJVMCICompiler", true);
+        return compatibility;
+    }
+
+    public @Nullable String installedVersion(@NotNull Component component) {
+        if ("graaljit".equals(component.name())) {
+            return new GraalJITLocator().locate().stream().findFirst().map(Location::getInfo).orElse(null);
+        }
+        return isInstalled(component) ? component.version() : null;
+    }
+
+    public boolean install(@NotNull Component component, @NotNull Timer timer) {
+        var installer = StagedInstaller.forDirectory(dirOf(component));
+        try {
+            var staging = installer.begin();
+            for (var each : component.files()) {
+                var target = new File(staging, each.name());
+                if (!HttpUtils.downloadWithBar(each.url(), target, each.name(), each.size(), timer)) {
+                    installer.abort();
+                    return false;
+                }
+                if (!verify(each, target)) {
+                    installer.abort();
+                    return false;
+                }
+            }
+            installer.commit();
+            return true;
+        } catch (IOException e) {
+            installer.abort();
+            Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("install-fail"), component.name())).fgDefault());
+            if (debug()) {
+                e.printStackTrace();
+            }
+            return false;
+        }
+    }
+
+    // kept as <name>.previous, the same place a staged install leaves the replaced generation
+    public boolean remove(@NotNull Component component) {
+        var dir = dirOf(component);
+        if (!dir.exists()) {
+            return false;
+        }
+        var previous = new File(componentsDir, component.name() + ".previous");
+        FileUtils.deleteDir(previous);
+        try {
+            Files.move(dir.toPath(), previous.toPath());
+            return true;
+        } catch (IOException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+            return false;
+        }
+    }
+
+    private static boolean verify(RemoteFile remoteFile, File file) throws IOException {
+        if (remoteFile.sha1() != null && !remoteFile.sha1().equalsIgnoreCase(FileUtils.getSHA1(file))) {
+            Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("checksum-fail"), remoteFile.name())).fgDefault());
+            return false;
+        }
+        try (var zip = ZipDirectory.open(file)) {
+            if (!zip.contains("module-info.class")) {
+                Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("bad-jar"), remoteFile.name())).fgDefault());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> jvmModules(File javaExecutable) {
+        var releaseFile = new File(JavaLocator.javaHomeOf(javaExecutable.getAbsoluteFile().getParentFile()), "release");
+        try {
+            for (var line : Files.readAllLines(releaseFile.toPath())) {
+                if (line.startsWith("MODULES=")) {
+                    return new HashSet<>(Arrays.asList(line.substring("MODULES=".length()).replace("\"", "").trim().split(" ")));
+                }
+            }
+        } catch (IOException ignore) {
+
+        }
+        return Set.of();
+    }
+}
@@ -0,0 +1,267 @@
+package cn.powernukkitx.cli.data.installer;
+
+import cn.powernukkitx.cli.data.bean.ArtifactBean;
+import cn.powernukkitx.cli.data.bean.RemoteFileBean;
+import cn.powernukkitx.cli.data.cache.ArtifactCache;
+import cn.powernukkitx.cli.data.cache.FileHashIndex;
+import cn.powernukkitx.cli.util.CompressUtils;
+import cn.powernukkitx.cli.util.ConfigUtils;
+import cn.powernukkitx.cli.util.FileUtils;
+import cn.powernukkitx.cli.util.HttpUtils;
+import cn.powernukkitx.cli.util.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+import static cn.powernukkitx.cli.util.StringUtils.displayableBytes;
+import static org.fusesource.jansi.Ansi.ansi;
+
+public final class LibsSyncEngine {
+    private static final ResourceBundle bundle = ResourceBundle.getBundle("cn.powernukkitx.cli.data.installer.LibsSync");
+
+    private final File libsDir;
+    private final Map<String, RemoteFileBean> remoteLibs;
+
+    public LibsSyncEngine(@NotNull File libsDir, @NotNull Map<String, RemoteFileBean> remoteLibs) {
+        this.libsDir = libsDir;
+        this.remoteLibs = remoteLibs;
+    }
+
+    public record SyncPlan(List<RemoteFileBean> added, List<RemoteFileBean> changed, List<File> stale, List<File> unchanged) {
+        public boolean upToDate() {
+            return added.isEmpty() && changed.isEmpty() && stale.isEmpty();
+        }
+
+        public long downloadSize() {
+            long size = 0;
+            for (var each : added) size += each.size();
+            for (var each : changed) size += each.size();
+            return size;
+        }
+    }
+
+    public @NotNull SyncPlan plan() {
+        var added = new ArrayList<RemoteFileBean>();
+        var changed = new ArrayList<RemoteFileBean>();
+        var stale = new ArrayList<File>();
+        var unchanged = new ArrayList<File>();
+        var toHash = new LinkedHashMap<File, RemoteFileBean>();
+        for (var remote : remoteLibs.values()) {
+            var local = new File(libsDir, remote.fileName());
+            if (!local.isFile()) {
+                added.add(remote);
+            } else if (local.length() != remote.size()) {
+                changed.add(remote);
+            } else if (local.lastModified() == remote.lastUpdateTime().getTime()) {
+                unchanged.add(local);
+            } else {
+                toHash.put(local, remote);
+            }
+        }
+        Map<File, String> hashes;
+        try {
+            hashes = FileHashIndex.getInstance().md5All(toHash.keySet());
+        } catch (IOException e) {
+            hashes = Map.of();
+        }
+        for (var entry : toHash.entrySet()) {
+            var local = entry.getKey();
+            var remote = entry.getValue();
+            // planning writes nothing, the hash index keeps the next check cheap as long as the file stays the same
+            if (remote.md5().equalsIgnoreCase(hashes.get(local))) {
+                unchanged.add(local);
+            } else {
+                changed.add(remote);
+            }
+        }
+        var localFiles = libsDir.listFiles(File::isFile);
+        if (localFiles != null) {
+            for (var each : localFiles) {
+                if (each.getName().endsWith(".jar") && !remoteLibs.containsKey(each.getName())) {
+                    stale.add(each);
+                }
+            }
+        }
+        return new SyncPlan(added, changed, stale, unchanged);
+    }
+
+    public boolean sync(@NotNull Timer timer) {
+        var plan = plan();
+        Logger.info(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("plan"), plan.added().size(), plan.changed().size(),
+                plan.stale().size(), plan.unchanged().size(), displayableBytes(plan.downloadSize()))).fgDefault());
+        if (plan.upToDate()) {
+            return true;
+        }
+        var installer = StagedInstaller.forDirectory(libsDir);
+        try {
+            var stagingDir = installer.begin();
+            // carry over everything that is neither stale nor about to be replaced
+            var replaced = new HashSet<String>();
+            plan.changed().forEach(each -> replaced.add(each.fileName()));
+            plan.stale().forEach(each -> replaced.add(each.getName()));
+            var localFiles = libsDir.listFiles(File::isFile);
+            if (localFiles != null) {
+                for (var each : localFiles) {
+                    if (!replaced.contains(each.getName())) {
+                        linkOrCopy(each, new File(stagingDir, each.getName()));
+                    }
+                }
+            }
+            if (!download(plan, stagingDir, timer)) {
+                installer.abort();
+                Logger.error(ansi().fgBrightRed().a(bundle.getString("fail")).fgDefault());
+                return false;
+            }
+            installer.commit();
+            Logger.info(ansi().fgBrightGreen().a(bundle.getString("success")).fgDefault());
+            return true;
+        } catch (IOException e) {
+            installer.abort();
+            Logger.error(ansi().fgBrightRed().a(bundle.getString("fail")).fgDefault());
+            if (debug()) {
+                e.printStackTrace();
+            }
+            return false;
+        }
+    }
+
+    // fresh installs stream the whole libs.tar.gz straight into the extractor, every listed jar is checked against its size and md5 while it is written
+    public boolean install(@NotNull ArtifactBean artifact, @NotNull Timer timer) {
+        var parent = libsDir.getAbsoluteFile().getParentFile();
+        var extractDir = new File(parent, libsDir.getName() + ".extract");
+        var installer = StagedInstaller.forDirectory(libsDir);
+        FileUtils.deleteDir(extractDir);
+        Logger.info(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("install"), artifact.name(), displayableBytes(artifact.sizeInBytes()))).fgDefault());
+        var verified = ConcurrentHashMap.<String>newKeySet();
+        try {
+            var stagingDir = installer.begin();
+            var ok = HttpUtils.streamWithBar(artifact.downloadId(), artifact.name(), artifact.sizeInBytes(), timer, body -> {
+                CompressUtils.uncompressTGzipStream(body, extractDir, (name, size, md5) -> {
+                    var fileName = name.substring(name.lastIndexOf('/') + 1);
+                    var remote = remoteLibs.get(fileName);
+                    if (remote == null) {
+                        return;
+                    }
+                    if (remote.size() != size || !remote.md5().equalsIgnoreCase(md5)) {
+                        Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("corrupted"), fileName)).fgDefault());
+                        throw new IOException("Corrupted " + name);
+                    }
+                    verified.add(fileName);
+                });
+                body.transferTo(OutputStream.nullOutputStream());
+            });
+            if (!ok) {
+                installer.abort();
+                Logger.error(ansi().fgBrightRed().a(bundle.getString("fail")).fgDefault());
+                return false;
+            }
+            // the archive may or may not keep the jars in a sub folder, jars it has but the libs list does not are left out
+            try (var stream = Files.walk(extractDir.toPath())) {
+                for (var each : (Iterable<Path>) stream::iterator) {
+                    if (Files.isRegularFile(each) && verified.contains(each.getFileName().toString())) {
+                        Files.move(each, stagingDir.toPath().resolve(each.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+            }
+            installer.commit();
+            return true;
+        } catch (IOException e) {
+            installer.abort();
+            Logger.error(ansi().fgBrightRed().a(bundle.getString("fail")).fgDefault());
+            if (debug()) {
+                e.printStackTrace();
+            }
+            return false;
+        } finally {
+            FileUtils.deleteDir(extractDir);
+        }
+    }
+
+    private boolean download(SyncPlan plan, File stagingDir, Timer timer) throws IOException {
+        var toDownload = new ArrayList<RemoteFileBean>(plan.added().size() + plan.changed().size());
+        toDownload.addAll(plan.added());
+        toDownload.addAll(plan.changed());
+        var total = plan.downloadSize();
+        var downloaded = new AtomicLong(0);
+        Logger.raw("");
+        var task = new TimerTask() {
+            private long last = -1;
+
+            @Override
+            public void run() {
+                var finished = downloaded.get();
+                var speed = last < 0 ? 0 : finished - last;
+                last = finished;
+                HttpUtils.progress("libs", finished, total, speed * 2);
+            }
+        };
+        timer.scheduleAtFixedRate(task, 500, 500);
+        var cache = ArtifactCache.getInstance();
+        // download-threads is the number of connections in total, not per file
+        var parallelFiles = Math.max(1, Math.min(ConfigUtils.downloadThreads(), toDownload.size()));
+        var connectionsPerFile = Math.max(1, ConfigUtils.downloadThreads() / parallelFiles);
+        try (var executor = Executors.newFixedThreadPool(parallelFiles)) {
+            var futures = new LinkedHashMap<RemoteFileBean, Future<Boolean>>();
+            for (var each : toDownload) {
+                futures.put(each, executor.submit(() -> {
+                    var target = new File(stagingDir, each.fileName());
+                    if (!cache.fetch(each, target, downloaded, connectionsPerFile)) {
+                        return false;
+                    }
+                    // the inode of a linked jar is shared with the cache and other servers, its mtime is not ours to change
+                    if (!isLinked(target)) {
+                        //noinspection ResultOfMethodCallIgnored
+                        target.setLastModified(each.lastUpdateTime().getTime());
+                    }
+                    return true;
+                }));
+            }
+            var ok = true;
+            for (var entry : futures.entrySet()) {
+                try {
+                    if (!entry.getValue().get()) {
+                        ok = false;
+                        Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("file-fail"), entry.getKey().fileName())).fgDefault());
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    ok = false;
+                    if (debug()) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+            return ok;
+        } finally {
+            task.cancel();
+            Logger.raw(ansi().saveCursorPosition().cursorUpLine().eraseLine() + System.lineSeparator());
+        }
+    }
+
+    private static boolean isLinked(File file) {
+        try {
+            return Files.getAttribute(file.toPath(), "unix:nlink") instanceof Integer links && links > 1;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void linkOrCopy(File source, File target) throws IOException {
+        try {
+            Files.createLink(target.toPath(), source.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package cn.powernukkitx.cli.data.installer;
+
+import cn.powernukkitx.cli.util.FileUtils;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// everything is prepared in <name>.staging and switched over with renames, the replaced generation stays in <name>.previous
+public final class StagedInstaller {
+    private static final String INSTALLED_LIST = ".installed";
+
+    private final File target;
+    private final File staging;
+    private final File previous;
+    private final boolean wholeDir;
+    // exists only while a directory is switched over, so a missing dir without it was removed on purpose
+    private final File switching;
+
+    private StagedInstaller(File target, File staging, File previous, boolean wholeDir) {
+        this.target = target;
+        this.staging = staging;
+        this.previous = previous;
+        this.wholeDir = wholeDir;
+        this.switching = new File(target.getParentFile(), target.getName() + ".switching");
+    }
+
+    // the whole dir is replaced, e.g. libs -> libs.staging / libs.previous
+    @Contract("_ -> new")
+    public static @NotNull StagedInstaller forDirectory(@NotNull File dir) {
+        var absolute = dir.getAbsoluteFile();
+        var parent = absolute.getParentFile();
+        return new StagedInstaller(absolute, new File(parent, absolute.getName() + ".staging"),
+                new File(parent, absolute.getName() + ".previous"), true);
+    }
+
+    // only the files put into staging (plus the ones passed to commit) are replaced, e.g. the core jar in the server dir
+    @Contract("_, _ -> new")
+    public static @NotNull StagedInstaller forFiles(@NotNull File dir, @NotNull String name) {
+        var absolute = dir.getAbsoluteFile();
+        return new StagedInstaller(absolute, new File(absolute, name + ".staging"), new File(absolute, name + ".previous"), false);
+    }
+
+    public @NotNull File begin() throws IOException {
+        recover();
+        FileUtils.deleteDir(staging);
+        Files.createDirectories(staging.toPath());
+        return staging;
+    }
+
+    public void abort() {
+        FileUtils.deleteDir(staging);
+    }
+
+    // a first install leaves a previous generation with nothing in it, rolling back to that would only take the install away
+    public boolean canRollback() {
+        var files = previous.listFiles(file -> !file.getName().equals(INSTALLED_LIST));
+        return files != null && files.length > 0;
+    }
+
+    public void commit() throws IOException {
+        commit(List.of());
+    }
+
+    public void commit(@NotNull Collection<File> obsolete) throws IOException {
+        if (wholeDir) {
+            FileUtils.deleteDir(previous);
+            Files.writeString(switching.toPath(), "commit", StandardCharsets.UTF_8);
+            if (target.exists()) {
+                move(target, previous);
+            }
+            try {
+                move(staging, target);
+            } catch (IOException e) {
+                if (!target.exists() && previous.exists()) {
+                    move(previous, target);
+                }
+                throw e;
+            } finally {
+                if (target.exists()) {
+                    Files.deleteIfExists(switching.toPath());
+                }
+            }
+            return;
+        }
+        var staged = staging.listFiles(file -> !file.getName().equals(INSTALLED_LIST));
+        var names = new ArrayList<String>();
+        if (staged != null) {
+            for (var each : staged) {
+                names.add(each.getName());
+            }
+        }
+        FileUtils.deleteDir(previous);
+        Files.createDirectories(previous.toPath());
+        var replaced = new ArrayList<File>();
+        for (var each : obsolete) {
+            if (!names.contains(each.getName())) {
+                replaced.add(each.getAbsoluteFile());
+            }
+        }
+        for (var name : names) {
+            replaced.add(new File(target, name));
+        }
+        var moved = new ArrayList<File>();
+        var installed = new ArrayList<String>();
+        try {
+            for (var each : replaced) {
+                if (each.exists()) {
+                    move(each, new File(previous, each.getName()));
+                    moved.add(each);
+                }
+            }
+            for (var name : names) {
+                move(new File(staging, name), new File(target, name));
+                installed.add(name);
+            }
+        } catch (IOException e) {
+            // put back what we already took away
+            for (var name : installed) {
+                move(new File(target, name), new File(staging, name));
+            }
+            for (var each : moved) {
+                move(new File(previous, each.getName()), each);
+            }
+            throw e;
+        }
+        Files.writeString(new File(previous, INSTALLED_LIST).toPath(), String.join("\n", names), StandardCharsets.UTF_8);
+        FileUtils.deleteDir(staging);
+    }
+
+    // swaps the current and the previous generation, so rolling back twice restores the update
+    public void rollback() throws IOException {
+        if (!canRollback()) {
+            throw new IOException("Nothing to roll back to: " + previous);
+        }
+        FileUtils.deleteDir(staging);
+        if (wholeDir) {
+            Files.writeString(switching.toPath(), "rollback", StandardCharsets.UTF_8);
+            if (target.exists()) {
+                move(target, staging);
+            }
+            move(previous, target);
+            Files.deleteIfExists(switching.toPath());
+            if (staging.exists()) {
+                move(staging, previous);
+            }
+            return;
+        }
+        var installedList = new File(previous, INSTALLED_LIST);
+        var installed = installedList.isFile() ? Files.readAllLines(installedList.toPath(), StandardCharsets.UTF_8) : List.<String>of();
+        Files.createDirectories(staging.toPath());
+        for (var name : installed) {
+            var each = new File(target, name);
+            if (!name.isBlank() && each.exists()) {
+                move(each, new File(staging, name));
+            }
+        }
+        var restored = new ArrayList<String>();
+        var files = previous.listFiles(file -> !file.getName().equals(INSTALLED_LIST));
+        if (files != null) {
+            for (var each : files) {
+                move(each, new File(target, each.getName()));
+                restored.add(each.getName());
+            }
+        }
+        Files.writeString(new File(staging, INSTALLED_LIST).toPath(), String.join("\n", restored), StandardCharsets.UTF_8);
+        FileUtils.deleteDir(previous);
+        move(staging, previous);
+    }
+
+    // a crash between the two renames of a directory commit leaves only the previous generation behind
+    public void recover() throws IOException {
+        if (!wholeDir || !switching.exists()) {
+            return;
+        }
+        if (!target.exists() && previous.isDirectory()) {
+            move(previous, target);
+        }
+        Files.deleteIfExists(switching.toPath());
+    }
+
+    private static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (target.exists()) {
+                throw e;
+            }
+            Files.move(source.toPath(), target.toPath());
+        }
+    }
+}
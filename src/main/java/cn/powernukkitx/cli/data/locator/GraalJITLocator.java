@@ -3,9 +3,11 @@ package cn.powernukkitx.cli.data.locator;
 import cn.powernukkitx.cli.CLIConstant;
 
 import java.io.File;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class GraalJITLocator extends Locator<String> {
     @Override
@@ -25,7 +27,8 @@ public class GraalJITLocator extends Locator<String> {
                     compiler = new GraalJITLocation(file, file.getName().replace("compiler-", "").replace(".jar", ""));
                 }
             }
-            return Arrays.asList(compiler, management);
+            // compiler-management is only shipped up to graal 23.0, never return null locations
+            return Stream.of(compiler, management).filter(Objects::nonNull).collect(Collectors.toList());
         } else {
             return Collections.emptyList();
         }
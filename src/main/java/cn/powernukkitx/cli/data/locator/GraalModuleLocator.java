@@ -3,23 +3,44 @@ package cn.powernukkitx.cli.data.locator;
 import cn.powernukkitx.cli.CLIConstant;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
+
+// modules the graal compiler requires on --module-path, the component dir is searched before libs
+public class GraalModuleLocator extends Locator<String> {
+    private final List<String> artifacts;
+
+    public GraalModuleLocator() {
+        this(List.of("word", "collections", "truffle-compiler"));
+    }
+
+    public GraalModuleLocator(List<String> artifacts) {
+        this.artifacts = artifacts;
+    }
 
-public class GraalModuleLocator extends Locator<Void> {
     @Override
-    public List<Location<Void>> locate() {
-        final File libsDir = new File(CLIConstant.userDir, "./libs");
-        if (libsDir.exists() && libsDir.isDirectory()) {
-            File[] files = libsDir.listFiles();
-            if (files == null) {
-                return Collections.emptyList();
+    public List<Location<String>> locate() {
+        final File[] dirs = {new File(CLIConstant.userDir, "./components/graaljit"), new File(CLIConstant.userDir, "./libs")};
+        var result = new ArrayList<Location<String>>(artifacts.size());
+        for (String artifact : artifacts) {
+            // word-23.1.2.jar, but not truffle-compiler-23.1.2.jar when looking for compiler
+            var pattern = Pattern.compile(Pattern.quote(artifact) + "-(\\d.*)\\.jar");
+            search:
+            for (File dir : dirs) {
+                File[] files = dir.listFiles((d, name) -> pattern.matcher(name).matches());
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    var matcher = pattern.matcher(file.getName());
+                    if (matcher.matches()) {
+                        result.add(new Location<>(file, matcher.group(1)));
+                        break search;
+                    }
+                }
             }
-            return Arrays.stream(files).filter(file -> (file.getName().startsWith("graal-sdk") && file.getName().endsWith(".jar")) || (file.getName().startsWith("truffle-api") && file.getName().endsWith(".jar")))
-                    .map(file -> new Location<Void>(file, null)).collect(Collectors.toList());
         }
-        return Collections.emptyList();
+        return result;
     }
 }
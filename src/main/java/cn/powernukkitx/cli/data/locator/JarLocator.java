@@ -1,14 +1,12 @@
 package cn.powernukkitx.cli.data.locator;
 
+import cn.powernukkitx.cli.data.cache.JarIndex;
 import cn.powernukkitx.cli.util.GitUtils;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.jar.JarFile;
-import java.util.zip.ZipEntry;
 
 public class JarLocator extends Locator<JarLocator.JarInfo> {
     private final File dir;
@@ -24,34 +22,20 @@ public class JarLocator extends Locator<JarLocator.JarInfo> {
         final List<Location<JarInfo>> output = new ArrayList<>(1);
         final File[] files = dir.listFiles((dir, name) -> name.endsWith(".jar"));
         if (files == null) return output;
+        // 类名、包目录两种写法都认，一次读取中央目录同时拿到git.properties
+        final String tmp = withClassOrPackage.replace('.', '/');
+        final List<String> names = List.of(tmp, tmp + "/", tmp + ".class");
+        final JarIndex index = JarIndex.getInstance();
         for (final File each : files) {
-            if (hasPackage(each)) {
-                output.add(new Location<>(each, new JarInfo(GitUtils.getFullGitInfo(each).orElse(null))));
+            final JarIndex.Scan scan = index.scan(each, names);
+            if (scan.found()) {
+                output.add(new Location<>(each, new JarInfo(scan.gitInfo())));
             }
         }
+        index.save();
         return output;
     }
 
-    private boolean hasPackage(File file) {
-        if (!file.exists()) {
-            return false;
-        }
-        if (!file.getName().endsWith(".jar")) {
-            return false;
-        }
-        try (final JarFile jarFile = new JarFile(file)) {
-            String tmp = withClassOrPackage.replace('.', '/');
-            ZipEntry entry = jarFile.getEntry(tmp);
-            if (entry == null) {
-                tmp += ".class";
-                entry = jarFile.getJarEntry(tmp);
-            }
-            return entry != null;
-        } catch (IOException e) {
-            return false;
-        }
-    }
-
     public static final class JarInfo {
         private GitUtils.FullGitInfo gitInfo;
 
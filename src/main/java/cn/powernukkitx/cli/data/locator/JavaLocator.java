@@ -1,6 +1,7 @@
 package cn.powernukkitx.cli.data.locator;
 
 import cn.powernukkitx.cli.CLIConstant;
+import cn.powernukkitx.cli.data.cache.JavaRegistry;
 import cn.powernukkitx.cli.util.CollectionUtils;
 import cn.powernukkitx.cli.util.ConfigUtils;
 import cn.powernukkitx.cli.util.StringUtils;
@@ -11,7 +12,8 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class JavaLocator extends Locator<JavaLocator.JavaInfo> {
@@ -31,6 +33,51 @@ public class JavaLocator extends Locator<JavaLocator.JavaInfo> {
     @Override
     public List<Location<JavaInfo>> locate() {
         final List<Location<JavaInfo>> javaExecutableList = new ArrayList<>();
+        final long deadline = System.currentTimeMillis() + ConfigUtils.jvmProbeTimeout();
+        final BlockingQueue<Optional<Location<JavaInfo>>> results = new LinkedBlockingQueue<>();
+        final int count = startProbes(deadline, results);
+        for (int i = 0; i < count; i++) {
+            final Optional<Location<JavaInfo>> result = pollResult(deadline, results);
+            if (result == null) {
+                break;
+            }
+            result.ifPresent(javaExecutableList::add);
+        }
+        return sort(javaExecutableList);
+    }
+
+    // returns as soon as a JVM matching the preference shows up, otherwise the best of what was found before the deadline
+    public Optional<Location<JavaInfo>> locateFirst(Predicate<JavaInfo> preferred) {
+        final List<Location<JavaInfo>> javaExecutableList = new ArrayList<>();
+        final long deadline = System.currentTimeMillis() + ConfigUtils.jvmProbeTimeout();
+        final BlockingQueue<Optional<Location<JavaInfo>>> results = new LinkedBlockingQueue<>();
+        final int count = startProbes(deadline, results);
+        for (int i = 0; i < count; i++) {
+            final Optional<Location<JavaInfo>> result = pollResult(deadline, results);
+            if (result == null) {
+                break;
+            }
+            if (result.isPresent()) {
+                if (preferred.test(result.get().getInfo())) {
+                    return result;
+                }
+                javaExecutableList.add(result.get());
+            }
+        }
+        final List<Location<JavaInfo>> out = sort(javaExecutableList);
+        return out.isEmpty() ? Optional.empty() : Optional.of(out.get(0));
+    }
+
+    private Optional<Location<JavaInfo>> pollResult(long deadline, BlockingQueue<Optional<Location<JavaInfo>>> results) {
+        try {
+            return results.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private List<File> candidateBinDirs() {
         final File localJavaDir = new File(CLIConstant.programDir, "java");
         final List<File> binDirs = new ArrayList<>();
         { // 探测当前运行环境
@@ -82,18 +129,15 @@ public class JavaLocator extends Locator<JavaLocator.JavaInfo> {
                 }
             }
         }
-        { // where/which探测
-            try {
-                Process process = new ProcessBuilder().command("where", "java").redirectErrorStream(true).start();
-                testSystemJava(binDirs, process);
-            } catch (IOException | InterruptedException ignore) {
-
-            }
-            try {
-                Process process = new ProcessBuilder().command("which", "java").redirectErrorStream(true).start();
-                testSystemJava(binDirs, process);
-            } catch (IOException | InterruptedException ignore) {
-
+        { // PATH探测，等价于where/which但无需启动子进程
+            for (var each : System.getenv().getOrDefault("PATH", "").split(File.pathSeparator)) {
+                if (each.isBlank()) {
+                    continue;
+                }
+                final File binDir = new File(each);
+                if (isJavaDir(binDir)) {
+                    binDirs.add(binDir);
+                }
             }
         }
         { // 用户自定义探测
@@ -114,19 +158,59 @@ public class JavaLocator extends Locator<JavaLocator.JavaInfo> {
                 }
             }
         }
-        for (final File binDir : binDirs) {
-            Optional<JavaInfo> jv = getJavaVersion(binDir);
-            if (jv.isPresent()) {
-                JavaInfo v = jv.get();
-                if (version != null && !greaterOrEqual(version, v.getMajorVersion())) {
-                    continue;
+        return binDirs;
+    }
+
+    private int startProbes(long deadline, BlockingQueue<Optional<Location<JavaInfo>>> results) {
+        final Set<String> probed = new HashSet<>();
+        int count = 0;
+        // every probe runs on its own virtual thread, slow ones keep filling the registry after we stop waiting
+        final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        for (final File binDir : candidateBinDirs()) {
+            if (!probed.add(new File(binDir, "java" + Locator.platformSuffix()).getAbsolutePath())) {
+                continue;
+            }
+            count++;
+            executor.execute(() -> {
+                Optional<Location<JavaInfo>> result = Optional.empty();
+                try {
+                    result = probe(binDir, deadline);
+                } finally {
+                    results.add(result);
                 }
-                javaExecutableList.add(new Location<>(new File(binDir, "java" + Locator.platformSuffix()), v));
-            } else if (version == null) {
-                javaExecutableList.add(new Location<>(new File(binDir, "java" + Locator.platformSuffix()),
-                        new JavaInfo("Unknown", "Unknown", "Unknown")));
+            });
+        }
+        executor.shutdown();
+        return count;
+    }
+
+    private Optional<Location<JavaInfo>> probe(File binDir, long deadline) {
+        final JavaRegistry registry = JavaRegistry.getInstance();
+        final File javaExecutable = new File(binDir, "java" + Locator.platformSuffix());
+        Optional<JavaInfo> jv = registry.get(javaExecutable);
+        if (jv.isEmpty()) {
+            jv = getJavaVersion(binDir, deadline);
+            if (jv.isPresent()) {
+                registry.put(javaExecutable, jv.get());
+                registry.save();
+            } else {
+                // jvmti.h only tells the major version, such a guess is used this time but never kept
+                jv = getJavaVersionByJVMTI(binDir);
+            }
+        }
+        if (jv.isPresent()) {
+            JavaInfo v = jv.get();
+            if (version != null && !greaterOrEqual(version, v.getMajorVersion())) {
+                return Optional.empty();
             }
+            return Optional.of(new Location<>(javaExecutable, v));
+        } else if (version == null) {
+            return Optional.of(new Location<>(javaExecutable, new JavaInfo("Unknown", "Unknown", "Unknown")));
         }
+        return Optional.empty();
+    }
+
+    private List<Location<JavaInfo>> sort(List<Location<JavaInfo>> javaExecutableList) {
         // 去重、排序并返回
         final List<Location<JavaInfo>> out = javaExecutableList.stream()
                 .filter(CollectionUtils.distinctByKey(each -> each.getFile().getAbsolutePath()))
@@ -159,25 +243,75 @@ public class JavaLocator extends Locator<JavaLocator.JavaInfo> {
         }
     }
 
-    private void testSystemJava(List<File> binDirs, Process process) throws InterruptedException, IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        process.waitFor(1000, TimeUnit.MILLISECONDS);
-        String s;
-        while ((s = reader.readLine()) != null) {
-            if (s.contains("java")) {
-                binDirs.add(new File(s).getParentFile());
-            }
-        }
-        process.destroy();
-    }
-
     private boolean isJavaDir(File binDir) {
         if (!binDir.exists()) return false;
         final File javaExecutable = new File(binDir, "java" + Locator.platformSuffix());
         return javaExecutable.exists();
     }
 
-    private Optional<JavaInfo> getJavaVersion(File binDir) {
+    private Optional<JavaInfo> getJavaVersion(File binDir, long deadline) {
+        // 先读release文件，读不出来时才启动一个JVM
+        Optional<JavaInfo> info = getJavaVersionByRelease(binDir);
+        return info.isPresent() ? info : getJavaVersionByProcess(binDir, deadline);
+    }
+
+    // PATH里的/usr/bin/java之类通常是指向真实JDK的符号链接
+    public static File javaHomeOf(File binDir) {
+        try {
+            var real = new File(binDir, "java" + Locator.platformSuffix()).toPath().toRealPath().getParent().getParent();
+            if (real != null) {
+                return real.toFile();
+            }
+        } catch (IOException ignore) {
+
+        }
+        return binDir.getParentFile();
+    }
+
+    private Optional<JavaInfo> getJavaVersionByRelease(File binDir) {
+        var releaseFile = new File(javaHomeOf(binDir), "release");
+        if (!releaseFile.isFile()) {
+            return Optional.empty();
+        }
+        try {
+            var release = new HashMap<String, String>();
+            for (var line : Files.readAllLines(releaseFile.toPath())) {
+                var i = line.indexOf('=');
+                if (i > 0) {
+                    var value = line.substring(i + 1).trim();
+                    if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                        value = value.substring(1, value.length() - 1);
+                    }
+                    release.put(line.substring(0, i).trim(), value);
+                }
+            }
+            var fullVersion = release.get("JAVA_VERSION");
+            var implementor = release.get("IMPLEMENTOR");
+            if (fullVersion == null || implementor == null) {
+                return Optional.empty();
+            }
+            var tmp = fullVersion.split("[._+-]");
+            var majorVersion = "1".equals(tmp[0]) && tmp.length > 1 ? tmp[1] : tmp[0];
+            var vendor = new StringBuilder(implementor);
+            if (release.containsKey("IMPLEMENTOR_VERSION")) {
+                vendor.append(' ').append(release.get("IMPLEMENTOR_VERSION"));
+            }
+            // GraalVM的release文件不一定在IMPLEMENTOR里写明，补上以便preferredJVM匹配
+            var runtimeVersion = release.getOrDefault("JAVA_RUNTIME_VERSION", "");
+            if (vendor.indexOf("GraalVM") < 0 && (release.containsKey("GRAALVM_VERSION") || runtimeVersion.contains("jvmci"))) {
+                vendor.append(" GraalVM");
+                if (release.containsKey("GRAALVM_VERSION")) {
+                    vendor.append(' ').append(release.get("GRAALVM_VERSION"));
+                }
+            }
+            return Optional.of(new JavaInfo(majorVersion, fullVersion, vendor.toString()));
+        } catch (Exception ignore) {
+
+        }
+        return Optional.empty();
+    }
+
+    private Optional<JavaInfo> getJavaVersionByProcess(File binDir, long deadline) {
         final File javaExecutable = new File(binDir, "java" + Locator.platformSuffix());
         if (!javaExecutable.canExecute()) {
             boolean r = javaExecutable.setExecutable(true);
@@ -188,8 +322,12 @@ public class JavaLocator extends Locator<JavaLocator.JavaInfo> {
         try {
             Process process = new ProcessBuilder().command(StringUtils.tryWrapQuotation(javaExecutable.getAbsolutePath()), "-version")
                     .redirectErrorStream(true).start();
+            // java -version prints a few lines only, so the pipe cannot fill up before the process exits
+            if (!process.waitFor(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                return Optional.empty();
+            }
             BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            process.waitFor(1000, TimeUnit.MILLISECONDS);
             String s;
             String fullVersion = null;
             String majorVersion = null;
@@ -216,11 +354,11 @@ public class JavaLocator extends Locator<JavaLocator.JavaInfo> {
         } catch (IOException | InterruptedException ignore) {
 
         }
-        return getJavaVersionByJVMTI(binDir);
+        return Optional.empty();
     }
 
     private Optional<JavaInfo> getJavaVersionByJVMTI(File binDir) {
-        var includeDir = new File(binDir.getParentFile(), "include");
+        var includeDir = new File(javaHomeOf(binDir), "include");
         if (!includeDir.exists()) {
             return Optional.empty();
         }
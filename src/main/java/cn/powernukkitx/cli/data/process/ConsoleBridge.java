@@ -0,0 +1,189 @@
+package cn.powernukkitx.cli.data.process;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+
+// a unix domain socket any number of clients can attach to: what they write is console input, and they get a copy of the output
+public final class ConsoleBridge {
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long RETRY_INTERVAL = 250;
+    // a closed and a half closed client look the same, either one gets this long to receive the answers to its last lines
+    private static final long LINGER = 10_000;
+
+    private final Path path;
+    private final ServerSocketChannel server;
+    private final OutputRing ring = new OutputRing(BUFFER_SIZE);
+
+    private ConsoleBridge(Path path, ServerSocketChannel server) {
+        this.path = path;
+        this.server = server;
+    }
+
+    @Contract("_ -> new")
+    public static @NotNull ConsoleBridge open(@NotNull Path path) throws IOException {
+        var address = UnixDomainSocketAddress.of(path);
+        if (Files.exists(path)) {
+            // a socket file outlives a killed CLI, it is only in use if somebody still answers on it
+            if (isListening(address)) {
+                throw new IOException("another pnx-cli is listening on it");
+            }
+            Files.delete(path);
+        }
+        var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            bind(server, path);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        var bridge = new ConsoleBridge(path, server);
+        Runtime.getRuntime().addShutdownHook(new Thread(bridge::close));
+        Thread.ofPlatform().daemon().name("pnx-console-bridge").start(bridge::accept);
+        return bridge;
+    }
+
+    // whoever can connect can run any server command: the socket is bound inside a directory only we can enter,
+    // restricted there and then moved into place, so it is never reachable with the default permissions
+    private static void bind(ServerSocketChannel server, Path path) throws IOException {
+        Path privateDir;
+        try {
+            privateDir = Files.createTempDirectory(path.toAbsolutePath().getParent(), ".pnx-",
+                    PosixFilePermissions.asFileAttribute(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE)));
+        } catch (UnsupportedOperationException e) {
+            // no posix permissions to set anyway
+            server.bind(UnixDomainSocketAddress.of(path));
+            return;
+        }
+        var socket = privateDir.resolve("s");
+        try {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Files.setPosixFilePermissions(socket, EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
+            Files.move(socket, path, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(socket);
+            Files.deleteIfExists(privateDir);
+        }
+    }
+
+    public @NotNull Path path() {
+        return path;
+    }
+
+    // never blocks, a client that does not keep up skips what it missed
+    public void publish(byte @NotNull [] bytes, int offset, int length) {
+        ring.write(bytes, offset, length);
+    }
+
+    public void close() {
+        ring.close();
+        try {
+            server.close();
+            Files.deleteIfExists(path);
+        } catch (IOException ignore) {
+
+        }
+    }
+
+    private void accept() {
+        while (server.isOpen()) {
+            try {
+                var client = server.accept();
+                var reader = ring.newReader();
+                Thread.startVirtualThread(() -> writeOutput(client, reader));
+                Thread.startVirtualThread(() -> readInput(client, reader));
+            } catch (IOException e) {
+                if (debug() && server.isOpen()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static void writeOutput(SocketChannel client, OutputRing.Reader reader) {
+        try (client) {
+            var buffer = new byte[8192];
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                var skipped = reader.takeSkipped();
+                if (skipped > 0) {
+                    writeFully(client, ByteBuffer.wrap(("\n[pnx-cli] " + skipped + " bytes of output skipped, this client is too slow\n").getBytes(StandardCharsets.UTF_8)));
+                }
+                writeFully(client, ByteBuffer.wrap(buffer, 0, n));
+            }
+        } catch (IOException ignore) {
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // a client may shut down its sending side and still wait for the answer, so only the output side closes the socket
+    private static void readInput(SocketChannel client, OutputRing.Reader reader) {
+        var buffer = ByteBuffer.allocate(8192);
+        var line = new ByteArrayOutputStream();
+        try {
+            while (client.read(buffer.clear()) != -1) {
+                for (int i = 0; i < buffer.position(); i++) {
+                    var b = buffer.get(i);
+                    line.write(b);
+                    if (b == '\n') {
+                        send(line);
+                    }
+                }
+            }
+            if (line.size() > 0) {
+                line.write('\n');
+                send(line);
+            }
+            Thread.sleep(LINGER);
+        } catch (IOException ignore) {
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // otherwise the output side of a client that is gone waits until the server prints something
+            reader.close();
+        }
+    }
+
+    // whole lines only, and kept until there is a server again, the same as the --stdin file
+    private static void send(ByteArrayOutputStream line) throws InterruptedException {
+        while (!ConsoleForwarder.send(line.toByteArray(), 0, line.size())) {
+            //noinspection BusyWait
+            Thread.sleep(RETRY_INTERVAL);
+        }
+        line.reset();
+    }
+
+    private static boolean isListening(UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void writeFully(SocketChannel client, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package cn.powernukkitx.cli.data.process;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// console input goes to whichever PNX process currently is the server, a standby only gets it after the handover
+public final class ConsoleForwarder {
+    public static final String HAND_OVER_COMMAND = "pnx-cli handover";
+    private static final AtomicReference<Process> target = new AtomicReference<>();
+    // bare Enters typed while no server runs, nobody else can see them once this thread has read them
+    private static final Semaphore enter = new Semaphore(0);
+    private static Thread systemInThread = null;
+    private static volatile boolean handOverCommand = false;
+    private static final AtomicBoolean handOverRequested = new AtomicBoolean(false);
+
+    private ConsoleForwarder() {
+
+    }
+
+    public static void forwardTo(@NotNull Process process) {
+        target.set(process);
+    }
+
+    public static synchronized void forwardSystemIn() {
+        if (systemInThread == null) {
+            systemInThread = Thread.ofPlatform().daemon().name("pnx-console").start(ConsoleForwarder::readSystemIn);
+        }
+    }
+
+    // with a hot standby, this line typed into any console input asks for a handover instead of reaching the server
+    public static void enableHandOverCommand() {
+        handOverCommand = true;
+    }
+
+    public static boolean takeHandOverRequest() {
+        return handOverRequested.getAndSet(false);
+    }
+
+    public static synchronized boolean isForwardingSystemIn() {
+        return systemInThread != null;
+    }
+
+    // true once Enter is pressed while no server runs, an Enter pressed before the call does not count
+    public static boolean awaitEnter(long timeLimit) throws InterruptedException {
+        enter.drainPermits();
+        return enter.tryAcquire(timeLimit, TimeUnit.MILLISECONDS);
+    }
+
+    // false while no server is running, the caller decides whether to keep the input for the next one
+    public static synchronized boolean send(byte @NotNull [] bytes, int offset, int length) {
+        if (handOverCommand && HAND_OVER_COMMAND.equals(new String(bytes, offset, length, StandardCharsets.UTF_8).trim())) {
+            handOverRequested.set(true);
+            return true;
+        }
+        var process = target.get();
+        if (process == null || !process.isAlive()) {
+            return false;
+        }
+        try {
+            process.getOutputStream().write(bytes, offset, length);
+            process.getOutputStream().flush();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void readSystemIn() {
+        var line = new ByteArrayOutputStream();
+        try {
+            int b;
+            while ((b = System.in.read()) != -1) {
+                line.write(b);
+                if (b == '\n') {
+                    // whole lines only, a command must not be split between the old and the new server
+                    if (!send(line.toByteArray(), 0, line.size()) && line.toString().isBlank()) {
+                        enter.release();
+                    }
+                    line.reset();
+                }
+            }
+        } catch (IOException ignore) {
+
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package cn.powernukkitx.cli.data.process;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// where the piped output of PNX goes: our terminal or the output pump, plus the console bridge when one is open
+public final class ConsoleOutput {
+    private static volatile ConsoleBridge bridge = null;
+    private static volatile OutputPump outputPump = null;
+    private static final Set<Thread> pumping = ConcurrentHashMap.newKeySet();
+
+    private ConsoleOutput() {
+
+    }
+
+    public static void mirrorTo(@Nullable ConsoleBridge consoleBridge) {
+        bridge = consoleBridge;
+    }
+
+    public static void pumpThrough(@Nullable OutputPump pump) {
+        outputPump = pump;
+    }
+
+    // the old server and a standby can both print during a handover, their chunks must not interleave
+    public static synchronized void write(byte @NotNull [] bytes, int offset, int length) {
+        var pump = outputPump;
+        if (pump != null) {
+            pump.write(bytes, offset, length);
+        } else {
+            System.out.write(bytes, offset, length);
+            System.out.flush();
+        }
+        var current = bridge;
+        if (current != null) {
+            current.publish(bytes, offset, length);
+        }
+    }
+
+    // stdout and stderr each get their own drain, chunks are whole writes of one stream
+    public static void pump(@NotNull InputStream stream) {
+        pumping.add(Thread.currentThread());
+        try (stream) {
+            var buffer = new byte[8192];
+            int n;
+            while ((n = stream.read(buffer)) != -1) {
+                write(buffer, 0, n);
+            }
+        } catch (IOException ignore) {
+
+        } finally {
+            pumping.remove(Thread.currentThread());
+        }
+    }
+
+    // before the CLI exits: what the pipes of exited processes still hold is read, then the output pump writes it all out
+    public static void close(long timeoutMillis) {
+        var deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            for (var each : List.copyOf(pumping)) {
+                each.join(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        var pump = outputPump;
+        if (pump != null) {
+            pump.close(Math.max(1, deadline - System.currentTimeMillis()));
+        }
+    }
+}
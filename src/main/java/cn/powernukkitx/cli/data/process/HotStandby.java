@@ -0,0 +1,198 @@
+package cn.powernukkitx.cli.data.process;
+
+import cn.powernukkitx.cli.CLIConstant;
+import cn.powernukkitx.cli.util.StringUtils;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+
+// a second PNX jvm booted next to the running server, it waits in StandbyMain until the old server has stopped
+public final class HotStandby {
+    private static final long READY_TIMEOUT = 120_000;
+    private static final long STOP_TIMEOUT = 120_000;
+
+    private final Process process;
+
+    private HotStandby(Process process) {
+        this.process = process;
+    }
+
+    public @NotNull Process process() {
+        return process;
+    }
+
+    // StandbyMain.class is a resource of the CLI itself, which also holds inside the native image
+    public static @NotNull File bootstrapJar() throws IOException {
+        var jar = new File(new File(CLIConstant.cacheDir, "standby"), "pnx-cli-standby-" + CLIConstant.version + ".jar");
+        if (jar.isFile()) {
+            return jar;
+        }
+        byte[] bytes;
+        try (var stream = StandbyMain.class.getResourceAsStream("StandbyMain.class")) {
+            if (stream == null) {
+                throw new IOException("StandbyMain.class is not bundled");
+            }
+            bytes = stream.readAllBytes();
+        }
+        Files.createDirectories(jar.getParentFile().toPath());
+        var tmp = Files.createTempFile(jar.getParentFile().toPath(), jar.getName(), ".tmp");
+        try {
+            try (var out = new JarOutputStream(Files.newOutputStream(tmp))) {
+                out.putNextEntry(new JarEntry(StandbyMain.class.getName().replace('.', '/') + ".class"));
+                out.write(bytes);
+                out.closeEntry();
+            }
+            Files.move(tmp, jar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return jar;
+    }
+
+    // StandbyMain comes from the boot class path and loads the real main class from the unchanged class path
+    @Contract("_, _, _ -> new")
+    public static @NotNull List<String> toStandbyArgv(@NotNull List<String> argv, @NotNull String mainClass, @NotNull File bootstrapJar) {
+        var index = argv.indexOf(mainClass);
+        if (index < 1) {
+            throw new IllegalArgumentException("Main class " + mainClass + " is not part of the launch command");
+        }
+        var result = new ArrayList<String>(argv.size() + 2);
+        result.add(argv.get(0));
+        result.add("-Xbootclasspath/a:" + bootstrapJar.getAbsolutePath());
+        for (int i = 1; i < argv.size(); i++) {
+            var each = argv.get(i);
+            if (i == index) {
+                result.add(StandbyMain.class.getName());
+            }
+            // an appended boot class path never matches the app CDS archive, only the jdk's default archive is used
+            if (each.startsWith("-XX:ArchiveClassesAtExit=") || each.startsWith("-XX:SharedArchiveFile=")) {
+                continue;
+            }
+            // touching the whole heap up front would take the memory from the live server while both run
+            if (each.equals("-XX:+AlwaysPreTouch")) {
+                continue;
+            }
+            result.add(each);
+        }
+        return result;
+    }
+
+    // heap plus direct memory a launch may take, the last -Xmx wins like in the jvm itself
+    public static long memoryOf(@NotNull List<String> argv, long available) {
+        var heap = available / 4;
+        var direct = 0L;
+        for (var each : argv) {
+            try {
+                if (each.startsWith("-Xmx")) {
+                    heap = StringUtils.parseBytes(each.substring(4));
+                } else if (each.startsWith("-XX:MaxDirectMemorySize=")) {
+                    direct = StringUtils.parseBytes(each.substring(24));
+                }
+            } catch (NumberFormatException ignore) {
+
+            }
+        }
+        return heap + direct;
+    }
+
+    // null when the standby died or did not get ready in time, its output goes to the console from the start
+    public static @Nullable HotStandby launch(@NotNull List<String> argv, @NotNull String mainClass) {
+        Process process = null;
+        try {
+            var standbyArgv = toStandbyArgv(argv, mainClass, bootstrapJar());
+            process = new ProcessBuilder(standbyArgv)
+                    .redirectInput(ProcessBuilder.Redirect.PIPE)
+                    .redirectOutput(ProcessBuilder.Redirect.PIPE)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            var ready = new CompletableFuture<Boolean>();
+            var stdout = process.getInputStream();
+            Thread.ofPlatform().daemon().name("pnx-standby-output").start(() -> pump(stdout, ready));
+            if (ready.get(READY_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                return new HotStandby(process);
+            }
+        } catch (IOException | ExecutionException | TimeoutException | RuntimeException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (process != null) {
+            process.destroy();
+        }
+        return null;
+    }
+
+    private static void pump(InputStream stdout, CompletableFuture<Boolean> ready) {
+        try (stdout) {
+            var line = new ByteArrayOutputStream();
+            int b;
+            while (!ready.isDone() && (b = stdout.read()) != -1) {
+                if (b == '\n') {
+                    if (StandbyMain.READY.equals(line.toString(StandardCharsets.UTF_8).trim())) {
+                        ready.complete(true);
+                    } else {
+                        line.write(b);
+                        ConsoleOutput.write(line.toByteArray(), 0, line.size());
+                    }
+                    line.reset();
+                } else {
+                    line.write(b);
+                }
+            }
+            ready.complete(false);
+            ConsoleOutput.pump(stdout);
+        } catch (IOException e) {
+            ready.complete(false);
+        }
+    }
+
+    // stops the old server through its console the way an operator would, then lets the standby run PNX
+    public boolean handOver(@NotNull Process old) {
+        try {
+            old.getOutputStream().write("stop\n".getBytes(StandardCharsets.UTF_8));
+            old.getOutputStream().flush();
+        } catch (IOException ignore) {
+
+        }
+        try {
+            if (!old.waitFor(STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                old.destroy();
+                if (!old.waitFor(10, TimeUnit.SECONDS)) {
+                    old.destroyForcibly().waitFor();
+                }
+            }
+            if (!process.isAlive()) {
+                return false;
+            }
+            process.getOutputStream().write((StandbyMain.GO + "\n").getBytes(StandardCharsets.UTF_8));
+            process.getOutputStream().flush();
+            return true;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void abort() {
+        process.destroy();
+    }
+}
@@ -0,0 +1,63 @@
+package cn.powernukkitx.cli.data.process;
+
+import cn.powernukkitx.cli.util.JsonLine;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// wraps every line PNX prints into one NDJSON object, used on the terminal sink of the output pump in json log mode
+public final class JsonLineOutputStream extends OutputStream {
+    private static final int MAX_LINE = 64 * 1024;
+
+    private final OutputStream out;
+    private final String source;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private final StringBuilder builder = new StringBuilder();
+    private final JsonLine json = new JsonLine(builder);
+
+    public JsonLineOutputStream(@NotNull OutputStream out, @NotNull String source) {
+        this.out = out;
+        this.source = source;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+        var start = offset;
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] == '\n') {
+                line.write(bytes, start, i - start);
+                emit();
+                start = i + 1;
+            }
+        }
+        line.write(bytes, start, offset + length - start);
+        // a line without an end is still shipped, in pieces
+        if (line.size() >= MAX_LINE) {
+            emit();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!builder.isEmpty()) {
+            out.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+            builder.setLength(0);
+        }
+        out.flush();
+    }
+
+    private void emit() {
+        var bytes = line.toByteArray();
+        var length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        json.begin(System.currentTimeMillis()).field("source", source).field("line", new String(bytes, 0, length, StandardCharsets.UTF_8)).end();
+        line.reset();
+    }
+}
@@ -0,0 +1,96 @@
+package cn.powernukkitx.cli.data.process;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+
+// PNX only ever writes into the ring, every sink drains it on its own thread, so a slow terminal costs neither the server nor the log file
+public final class OutputPump {
+    public enum Overflow {
+        // one line per gap saying how much was lost
+        SUMMARY,
+        DROP
+    }
+
+    private final OutputRing ring;
+    private final Overflow overflow;
+    private final List<Thread> sinks = new CopyOnWriteArrayList<>();
+
+    public OutputPump(int capacity, @NotNull Overflow overflow) {
+        this.ring = new OutputRing(capacity);
+        this.overflow = overflow;
+    }
+
+    public void write(byte @NotNull [] bytes, int offset, int length) {
+        ring.write(bytes, offset, length);
+    }
+
+    public void addSink(@NotNull String name, @NotNull OutputStream out) {
+        var reader = ring.newReader();
+        sinks.add(Thread.ofPlatform().daemon().name("pnx-output-" + name).start(() -> drain(reader, out)));
+    }
+
+    // the last output before an exit is usually the interesting part, so the sinks get to write out what the ring still holds
+    public void close(long timeoutMillis) {
+        ring.close();
+        var deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            for (var each : sinks) {
+                each.join(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain(OutputRing.Reader reader, OutputStream out) {
+        var buffer = new byte[64 * 1024];
+        // after a gap the rest of the cut line is dropped too, so the sink only ever sees whole lines
+        var resync = false;
+        long lost = 0;
+        try {
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                var skipped = reader.takeSkipped();
+                var start = 0;
+                if (skipped > 0) {
+                    resync = true;
+                    lost += skipped;
+                }
+                if (resync) {
+                    while (start < n && buffer[start] != '\n') {
+                        start++;
+                    }
+                    if (start == n) {
+                        lost += n;
+                        continue;
+                    }
+                    start++;
+                    lost += start;
+                    resync = false;
+                    if (overflow == Overflow.SUMMARY) {
+                        out.write(("[pnx-cli] " + lost + " bytes of PNX output dropped, this output could not keep up\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                    lost = 0;
+                }
+                out.write(buffer, start, n - start);
+                out.flush();
+            }
+            if (out instanceof RotatingLog) {
+                out.close();
+            }
+        } catch (IOException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
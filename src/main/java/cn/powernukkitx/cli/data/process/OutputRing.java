@@ -0,0 +1,91 @@
+package cn.powernukkitx.cli.data.process;
+
+import org.jetbrains.annotations.NotNull;
+
+// a fixed size byte ring, the writer never waits and readers that fall behind by more than the capacity lose the oldest bytes
+public final class OutputRing {
+    private final byte[] buffer;
+    // total bytes ever written, a reader position is an offset into this stream
+    private long written = 0;
+    private boolean closed = false;
+
+    public OutputRing(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    public synchronized void write(byte @NotNull [] bytes, int offset, int length) {
+        if (closed) {
+            return;
+        }
+        // only the tail can survive a write larger than the ring
+        if (length > buffer.length) {
+            written += length - buffer.length;
+            offset += length - buffer.length;
+            length = buffer.length;
+        }
+        var start = (int) (written % buffer.length);
+        var first = Math.min(length, buffer.length - start);
+        System.arraycopy(bytes, offset, buffer, start, first);
+        System.arraycopy(bytes, offset + first, buffer, 0, length - first);
+        written += length;
+        notifyAll();
+    }
+
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    // starts at the current end, what was written before is not replayed
+    public synchronized @NotNull Reader newReader() {
+        return new Reader(written);
+    }
+
+    public final class Reader {
+        private long position;
+        private long skipped = 0;
+        private boolean readerClosed = false;
+
+        private Reader(long position) {
+            this.position = position;
+        }
+
+        // blocks until there is something to read, -1 once the ring or this reader is closed
+        public int read(byte @NotNull [] bytes) throws InterruptedException {
+            synchronized (OutputRing.this) {
+                while (position == written && !closed && !readerClosed) {
+                    OutputRing.this.wait();
+                }
+                if (position == written || readerClosed) {
+                    return -1;
+                }
+                if (written - position > buffer.length) {
+                    skipped += written - buffer.length - position;
+                    position = written - buffer.length;
+                }
+                var start = (int) (position % buffer.length);
+                var length = (int) Math.min(bytes.length, Math.min(written - position, buffer.length - start));
+                System.arraycopy(buffer, start, bytes, 0, length);
+                position += length;
+                return length;
+            }
+        }
+
+        // wakes up a blocked read, for a reader whose consumer went away
+        public void close() {
+            synchronized (OutputRing.this) {
+                readerClosed = true;
+                OutputRing.this.notifyAll();
+            }
+        }
+
+        // bytes this reader lost since the last call because it was too slow
+        public long takeSkipped() {
+            synchronized (OutputRing.this) {
+                var result = skipped;
+                skipped = 0;
+                return result;
+            }
+        }
+    }
+}
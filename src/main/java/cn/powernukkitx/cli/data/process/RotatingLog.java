@@ -0,0 +1,84 @@
+package cn.powernukkitx.cli.data.process;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+// console.log is moved to console.1.log once it is full, console.<maxFiles>.log is the oldest one kept
+public final class RotatingLog extends OutputStream {
+    private final File file;
+    private final long maxSize;
+    private final int maxFiles;
+    private OutputStream out = null;
+    private long size = 0;
+
+    public RotatingLog(@NotNull File file, long maxSize, int maxFiles) {
+        this.file = file;
+        this.maxSize = maxSize;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte @NotNull [] bytes, int offset, int length) throws IOException {
+        if (out == null) {
+            //noinspection ResultOfMethodCallIgnored
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            size = file.length();
+            out = new FileOutputStream(file, true);
+        }
+        if (size > 0 && size + length > maxSize) {
+            rotate();
+        }
+        out.write(bytes, offset, length);
+        size += length;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        Files.deleteIfExists(numbered(maxFiles).toPath());
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            var from = numbered(i);
+            if (from.exists()) {
+                Files.move(from.toPath(), numbered(i + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(file.toPath(), numbered(1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        out = new FileOutputStream(file, false);
+        size = 0;
+    }
+
+    private File numbered(int index) {
+        var name = file.getName();
+        var dot = name.lastIndexOf('.');
+        return new File(file.getAbsoluteFile().getParentFile(), dot > 0
+                ? name.substring(0, dot) + "." + index + name.substring(dot)
+                : name + "." + index);
+    }
+}
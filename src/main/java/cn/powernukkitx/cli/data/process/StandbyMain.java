@@ -0,0 +1,71 @@
+package cn.powernukkitx.cli.data.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.jar.JarFile;
+
+// runs inside the standby PNX jvm, so it may only use java.base and has to stay a single class
+public final class StandbyMain {
+    static final String READY = "pnx-cli:standby-ready";
+    static final String GO = "pnx-cli:go";
+
+    private StandbyMain() {
+
+    }
+
+    public static void main(String[] args) throws Throwable {
+        var mainClass = Class.forName(args[0], false, ClassLoader.getSystemClassLoader());
+        preload(mainClass);
+        System.out.println(READY);
+        System.out.flush();
+        // System.in keeps whatever it buffered past the signal, PNX reads the same stream afterwards
+        var line = new StringBuilder();
+        int b;
+        while ((b = System.in.read()) != -1) {
+            if (b == '\n') {
+                if (GO.contentEquals(line.toString().trim())) {
+                    break;
+                }
+                line.setLength(0);
+            } else {
+                line.append((char) b);
+            }
+        }
+        if (b == -1) {
+            // the CLI is gone, nobody will ever hand over to us
+            System.exit(0);
+        }
+        try {
+            mainClass.getMethod("main", String[].class).invoke(null, (Object) Arrays.copyOfRange(args, 1, args.length));
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // loading without initializing is invisible to PNX, it only moves class loading out of the downtime
+    private static void preload(Class<?> mainClass) {
+        var loader = mainClass.getClassLoader();
+        try {
+            var jar = new File(mainClass.getProtectionDomain().getCodeSource().getLocation().toURI());
+            try (var jarFile = new JarFile(jar)) {
+                var entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    var name = entries.nextElement().getName();
+                    if (!name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+                        continue;
+                    }
+                    try {
+                        Class.forName(name.substring(0, name.length() - 6).replace('/', '.'), false, loader);
+                    } catch (Throwable ignore) {
+
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException | URISyntaxException ignore) {
+
+        }
+    }
+}
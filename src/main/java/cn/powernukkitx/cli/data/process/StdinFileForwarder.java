@@ -0,0 +1,141 @@
+package cn.powernukkitx.cli.data.process;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+// the --stdin file: a regular file is tailed from an offset, a named pipe is streamed
+public final class StdinFileForwarder {
+    // the watch service wakes us up at once, the timeout only covers file systems it does not see changes on
+    private static final long POLL_INTERVAL = 250;
+    private static final int MAX_READ = 1024 * 1024;
+
+    private static Thread thread = null;
+
+    private StdinFileForwarder() {
+
+    }
+
+    public static synchronized void start(@NotNull File file) {
+        if (thread == null) {
+            var path = file.toPath().toAbsolutePath();
+            thread = Thread.ofPlatform().daemon().name("pnx-stdin-file").start(() -> {
+                if (isNamedPipe(path)) {
+                    readNamedPipe(path);
+                } else {
+                    tail(path);
+                }
+            });
+        }
+    }
+
+    private static boolean isNamedPipe(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).isOther();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // lines already in the file at start are sent too; the file is never written to, keeping it small is up to whoever appends
+    private static void tail(Path path) {
+        long offset = 0;
+        Object fileKey = null;
+        try (var watcher = path.getFileSystem().newWatchService()) {
+            path.getParent().register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+            var buffer = ByteBuffer.allocate(MAX_READ);
+            while (true) {
+                var attributes = attributesOf(path);
+                if (attributes != null) {
+                    // only a replaced or truncated file starts over, a touch or a rewrite in place must not send old commands again
+                    if (!Objects.equals(attributes.fileKey(), fileKey) || attributes.size() < offset) {
+                        offset = 0;
+                    }
+                    fileKey = attributes.fileKey();
+                    while (attributes.size() > offset) {
+                        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                            buffer.clear().limit((int) Math.min(MAX_READ, attributes.size() - offset));
+                            channel.read(buffer, offset);
+                        }
+                        var end = lastLineEnd(buffer.array(), buffer.position());
+                        // a line that is still being written, or a server that is restarting, is picked up on the next round
+                        if (end < 0 || !ConsoleForwarder.send(buffer.array(), 0, end + 1)) {
+                            break;
+                        }
+                        offset += end + 1;
+                    }
+                }
+                var key = watcher.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (IOException ignore) {
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // opening blocks until a writer shows up, and the pipe ends whenever the last writer closes it
+    private static void readNamedPipe(Path path) {
+        var line = new ByteArrayOutputStream();
+        while (true) {
+            try (var in = new FileInputStream(path.toFile())) {
+                int b;
+                while ((b = in.read()) != -1) {
+                    line.write(b);
+                    if (b == '\n') {
+                        // nothing to keep the line in, so the writers wait until there is a server again
+                        while (!ConsoleForwarder.send(line.toByteArray(), 0, line.size())) {
+                            //noinspection BusyWait
+                            Thread.sleep(POLL_INTERVAL);
+                        }
+                        line.reset();
+                    }
+                }
+            } catch (IOException e) {
+                try {
+                    //noinspection BusyWait
+                    Thread.sleep(1000);
+                } catch (InterruptedException ignore) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private static int lastLineEnd(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static BasicFileAttributes attributesOf(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
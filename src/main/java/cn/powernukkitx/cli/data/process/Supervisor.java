@@ -0,0 +1,263 @@
+package cn.powernukkitx.cli.data.process;
+
+import cn.powernukkitx.cli.Main;
+import cn.powernukkitx.cli.data.builder.JVMSizing;
+import cn.powernukkitx.cli.util.ConfigUtils;
+import cn.powernukkitx.cli.util.InputUtils;
+import cn.powernukkitx.cli.util.Logger;
+import cn.powernukkitx.cli.util.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+import static org.fusesource.jansi.Ansi.ansi;
+
+// restarts PNX according to its exit code, backs off while it keeps dying right after the start
+public final class Supervisor {
+    private static final ResourceBundle bundle = ResourceBundle.getBundle("cn.powernukkitx.cli.data.process.Supervisor");
+    private static final long INITIAL_BACKOFF = 1000;
+    private static final long MAX_BACKOFF = 60000;
+    private static final long HAND_OVER_POLL = 5000;
+
+    public enum Policy {
+        STOP,
+        // with backoff when the server did not stay up for min-restart-time
+        RESTART,
+        // never waits, e.g. for an exit code the server uses to ask for a restart
+        IMMEDIATE
+    }
+
+    // upToDate tells whether the argv still matches the files it was built from, jars stamps the core and libs only
+    public record Launch(List<String> argv, BooleanSupplier upToDate, Supplier<Object> jars) {
+    }
+
+    @FunctionalInterface
+    public interface Preparer {
+        // null when PNX can not be launched. A prewarm runs next to the live server: it installs and syncs nothing,
+        // it only writes what a jvm reads once at its start (the arg file) and drops CDS archives no longer matching any jar set
+        @Nullable Launch prepare(boolean prewarm);
+    }
+
+    public interface Runner {
+        @NotNull Process launch(@NotNull List<String> argv) throws IOException;
+
+        // the process just became the server and gets the console
+        void attach(@NotNull Process process);
+    }
+
+    private final Preparer preparer;
+    private final Runner runner;
+    private final Map<Integer, Policy> policies;
+    private final Policy defaultPolicy;
+    private final long minRestartTime;
+    private final int maxQuickRestarts;
+    private String hotStandbyMainClass = null;
+
+    public Supervisor(@NotNull Preparer preparer, @NotNull Runner runner) {
+        this(preparer, runner, ConfigUtils.restartPolicy(), ConfigUtils.minRestartTime(), ConfigUtils.maxQuickRestarts());
+    }
+
+    public Supervisor(@NotNull Preparer preparer, @NotNull Runner runner, @NotNull String policy, long minRestartTime, int maxQuickRestarts) {
+        this.preparer = preparer;
+        this.runner = runner;
+        this.policies = new HashMap<>();
+        var fallback = Policy.RESTART;
+        for (var each : policy.trim().split("\\s+")) {
+            var parts = each.split(":", 2);
+            if (parts.length != 2) {
+                continue;
+            }
+            try {
+                var value = Policy.valueOf(parts[1].trim().toUpperCase());
+                if ("*".equals(parts[0].trim())) {
+                    fallback = value;
+                } else {
+                    policies.put(Integer.parseInt(parts[0].trim()), value);
+                }
+            } catch (IllegalArgumentException ignore) {
+
+            }
+        }
+        this.defaultPolicy = fallback;
+        this.minRestartTime = minRestartTime;
+        this.maxQuickRestarts = maxQuickRestarts;
+    }
+
+    // when the core or libs change while PNX runs, or the handover command is typed, a standby is booted and takes over instead of waiting for an exit
+    public @NotNull Supervisor enableHotStandby(@NotNull String mainClass) {
+        this.hotStandbyMainClass = mainClass;
+        ConsoleForwarder.enableHandOverCommand();
+        return this;
+    }
+
+    public @NotNull Policy policyOf(int exitCode) {
+        return policies.getOrDefault(exitCode, defaultPolicy);
+    }
+
+    public int supervise(@NotNull Launch first) {
+        var launch = first;
+        var quickExits = 0;
+        while (true) {
+            // the next launch is prepared once this one counts as healthy, so a restart only waits for the jvm to boot
+            var prewarmed = new AtomicReference<CompletableFuture<Launch>>();
+            var prewarm = new TimerTask() {
+                @Override
+                public void run() {
+                    prewarmed.set(CompletableFuture.supplyAsync(() -> preparer.prepare(true), Thread::startVirtualThread));
+                }
+            };
+            Main.getTimer().schedule(prewarm, minRestartTime);
+            var startTime = System.currentTimeMillis();
+            var exitCode = 1;
+            try {
+                var process = runner.launch(launch.argv());
+                runner.attach(process);
+                Main.pnxRunning = true;
+                var launchedJars = launch.jars().get();
+                // the stamps of the last poll, a jar that is still being copied must hold still for one poll before it is used
+                Object polledJars = null;
+                // a failed handover is only tried again once the jars change once more
+                Object failedJars = null;
+                while (!process.waitFor(HAND_OVER_POLL, TimeUnit.MILLISECONDS)) {
+                    if (hotStandbyMainClass == null) {
+                        continue;
+                    }
+                    var requested = ConsoleForwarder.takeHandOverRequest();
+                    var jars = launch.jars().get();
+                    var stable = jars.equals(polledJars);
+                    polledJars = jars;
+                    if (!requested && (jars.equals(launchedJars) || !stable || jars.equals(failedJars))) {
+                        continue;
+                    }
+                    var next = handOver(process, launch);
+                    if (next == null) {
+                        failedJars = jars;
+                        continue;
+                    }
+                    process = next.getValue();
+                    launch = next.getKey();
+                    launchedJars = launch.jars().get();
+                    polledJars = null;
+                    failedJars = null;
+                    startTime = System.currentTimeMillis();
+                }
+                exitCode = process.exitValue();
+            } catch (IOException e) {
+                if (debug()) {
+                    e.printStackTrace();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return exitCode;
+            } finally {
+                Main.pnxRunning = false;
+            }
+            var upTime = System.currentTimeMillis() - startTime;
+            prewarm.cancel();
+            Logger.info(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("exited"), exitCode, format(upTime))).fgDefault());
+            var policy = policyOf(exitCode);
+            Logger.event("exit", "code", exitCode, "uptimeMs", upTime, "policy", policy.name().toLowerCase());
+            if (policy == Policy.STOP) {
+                Logger.info(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("stop"), exitCode)).fgDefault());
+                return exitCode;
+            }
+            if (upTime >= minRestartTime) {
+                quickExits = 0;
+            } else if (++quickExits >= maxQuickRestarts) {
+                Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("crash-loop"), quickExits, format(minRestartTime))).fgDefault());
+                Logger.event("crash-loop", "quickExits", quickExits);
+                return exitCode;
+            }
+            var delay = policy == Policy.IMMEDIATE || quickExits == 0 ? 0 : Math.min(MAX_BACKOFF, INITIAL_BACKOFF << (quickExits - 1));
+            if (delay > 0) {
+                Logger.warn(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("backoff"), quickExits, format(delay))).fgDefault());
+                // with the console forwarded its thread is the only reader of System.in, the Enter has to come from it
+                var stopped = ConsoleForwarder.isForwardingSystemIn()
+                        ? InputUtils.pressEnterToStopWithTimeLimit(delay, ConsoleForwarder::awaitEnter)
+                        : InputUtils.pressEnterToStopWithTimeLimit(delay);
+                if (stopped) {
+                    return exitCode;
+                }
+            }
+            var next = join(prewarmed.get());
+            var reused = next != null && next.upToDate().getAsBoolean();
+            if (reused) {
+                Logger.info(ansi().fgBrightYellow().a(bundle.getString("prewarmed")).fgDefault());
+            } else {
+                next = preparer.prepare(false);
+                if (next == null) {
+                    return exitCode == 0 ? 1 : exitCode;
+                }
+            }
+            Logger.event("restart", "delayMs", delay, "quickExits", quickExits, "prewarmed", reused);
+            launch = next;
+        }
+    }
+
+    private @Nullable Map.Entry<Launch, Process> handOver(Process current, Launch currentLaunch) {
+        var next = preparer.prepare(true);
+        if (next != null) {
+            // both jvms are alive until the old one has stopped, two heaps sized for one would get the live server killed
+            var available = JVMSizing.detect(null).availableMemory();
+            var needed = HotStandby.memoryOf(currentLaunch.argv(), available) + HotStandby.memoryOf(next.argv(), available);
+            if (needed > available) {
+                Logger.warn(ansi().fgBrightYellow().a(new Formatter().format(bundle.getString("standby-memory"),
+                        StringUtils.displayableBytes(needed), StringUtils.displayableBytes(available))).fgDefault());
+                Logger.event("handover", "success", false, "reason", "memory", "neededBytes", needed, "availableBytes", available);
+                return null;
+            }
+        }
+        Logger.info(ansi().fgBrightYellow().a(bundle.getString("standby-boot")).fgDefault());
+        var standby = next == null ? null : HotStandby.launch(next.argv(), hotStandbyMainClass);
+        if (standby == null) {
+            Logger.warn(ansi().fgBrightYellow().a(bundle.getString("standby-fail")).fgDefault());
+            Logger.event("handover", "success", false);
+            return null;
+        }
+        Logger.info(ansi().fgBrightYellow().a(bundle.getString("standby-ready")).fgDefault());
+        if (!standby.handOver(current)) {
+            standby.abort();
+            Logger.warn(ansi().fgBrightYellow().a(bundle.getString("standby-fail")).fgDefault());
+            Logger.event("handover", "success", false);
+            return null;
+        }
+        runner.attach(standby.process());
+        Logger.info(ansi().fgBrightGreen().a(bundle.getString("standby-done")).fgDefault());
+        Logger.event("handover", "success", true, "argv", next.argv());
+        return Map.entry(next, standby.process());
+    }
+
+    private static @Nullable Launch join(@Nullable CompletableFuture<Launch> future) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (debug()) {
+                e.printStackTrace();
+            }
+            return null;
+        }
+    }
+
+    private static String format(long millis) {
+        var duration = Duration.ofMillis(millis);
+        if (duration.toHours() > 0) {
+            return duration.toHours() + "h" + duration.toMinutesPart() + "m";
+        } else if (duration.toMinutes() > 0) {
+            return duration.toMinutes() + "m" + duration.toSecondsPart() + "s";
+        }
+        return Math.max(1, (millis + 999) / 1000) + "s";
+    }
+}
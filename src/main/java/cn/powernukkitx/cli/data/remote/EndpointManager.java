@@ -0,0 +1,341 @@
+package cn.powernukkitx.cli.data.remote;
+
+import cn.powernukkitx.cli.CLIConstant;
+import cn.powernukkitx.cli.Main;
+import cn.powernukkitx.cli.util.ConfigUtils;
+import cn.powernukkitx.cli.util.FileUtils;
+import cn.powernukkitx.cli.util.HttpUtils;
+import cn.powernukkitx.cli.util.Logger;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static cn.powernukkitx.cli.util.ConfigUtils.debug;
+import static org.fusesource.jansi.Ansi.ansi;
+
+// RTT, throughput and error rate of every API endpoint as moving averages, kept across runs in cache/endpoints.json
+public final class EndpointManager {
+    private static final ResourceBundle bundle = ResourceBundle.getBundle("cn.powernukkitx.cli.data.remote.Endpoint");
+    private static final double ALPHA = 0.3;
+    // a table younger than this is trusted at startup, the probe then runs in the background
+    private static final long FRESH_TIME = TimeUnit.HOURS.toMillis(1);
+    private static final long PROBE_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(5);
+    // an endpoint that just failed is only used again when nothing else is left
+    private static final long COOL_DOWN = TimeUnit.MINUTES.toMillis(1);
+    // scores are the expected time to fetch this much, so a fast link can make up for a longer RTT
+    private static final double REFERENCE_SIZE = 4 * 1024 * 1024;
+    // the current endpoint is only replaced in the background by one that is clearly better
+    private static final double SWITCH_MARGIN = 0.7;
+    private static EndpointManager instance = null;
+
+    private final File tableFile;
+    private final Map<String, String> hosts;
+    private final Map<String, Health> table = new ConcurrentHashMap<>();
+    private volatile String current = null;
+    private TimerTask probeTask = null;
+
+    public EndpointManager(@NotNull File tableFile, @NotNull Map<String, String> hosts) {
+        this.tableFile = tableFile;
+        this.hosts = hosts;
+        load();
+    }
+
+    public static synchronized @NotNull EndpointManager getInstance() {
+        if (instance == null) {
+            // older versions wrote the first endpoint that answered into the config and never looked again
+            ConfigUtils.migrateOnce("auto-api-endpoint", () -> ConfigUtils.remove("api-endpoint"));
+            instance = new EndpointManager(new File(CLIConstant.cacheDir, "endpoints.json"), HttpUtils.API_ADDRESSES);
+        }
+        return instance;
+    }
+
+    private static final class Health {
+        // -1 while unknown
+        double rtt = -1;
+        double throughput = -1;
+        double errorRate = 0;
+        long lastProbe = 0;
+        long lastFailure = 0;
+
+        synchronized void success(double rttMillis) {
+            rtt = rtt < 0 ? rttMillis : rtt + ALPHA * (rttMillis - rtt);
+            errorRate = errorRate * (1 - ALPHA);
+        }
+
+        synchronized void transfer(double bytesPerSecond) {
+            throughput = throughput < 0 ? bytesPerSecond : throughput + ALPHA * (bytesPerSecond - throughput);
+            errorRate = errorRate * (1 - ALPHA);
+        }
+
+        synchronized void probed(boolean ok, double rttMillis) {
+            lastProbe = System.currentTimeMillis();
+            if (ok) {
+                success(rttMillis);
+            } else {
+                failure();
+            }
+        }
+
+        synchronized boolean fresh() {
+            return rtt >= 0 && System.currentTimeMillis() - lastProbe < FRESH_TIME;
+        }
+
+        synchronized void failure() {
+            errorRate = errorRate + ALPHA * (1 - errorRate);
+            lastFailure = System.currentTimeMillis();
+        }
+
+        // an endpoint nothing was downloaded from yet is assumed to be as fast as the others on average
+        synchronized double score(double assumedThroughput) {
+            if (rtt < 0) {
+                return Double.MAX_VALUE / 2;
+            }
+            var bytesPerSecond = throughput > 0 ? throughput : assumedThroughput;
+            var seconds = rtt / 1000 + (bytesPerSecond > 0 ? REFERENCE_SIZE / bytesPerSecond : 0);
+            return seconds / Math.max(0.05, 1 - errorRate);
+        }
+
+        synchronized boolean coolingDown() {
+            return System.currentTimeMillis() - lastFailure < COOL_DOWN;
+        }
+    }
+
+    public @NotNull String currentHost() {
+        return hosts.get(current());
+    }
+
+    // a user set api-endpoint is preferred while it works, otherwise the table decides
+    public synchronized @NotNull String current() {
+        if (current != null) {
+            return current;
+        }
+        var fresh = table.values().stream().anyMatch(Health::fresh);
+        if (!fresh) {
+            Logger.info(ansi().fgBrightYellow().a(bundle.getString("detecting")));
+            HttpUtils.joinFutureWithPlaceholder(probe());
+        }
+        var preferred = ConfigUtils.apiEndpoint();
+        if (preferred != null && hosts.containsKey(preferred) && !healthOf(preferred).coolingDown()) {
+            current = preferred;
+            Logger.info(bundle.getString("using-source").formatted(current));
+            Logger.event("endpoint", "endpoint", current, "host", hosts.get(current), "source", "config");
+        } else {
+            current = ranking(null).getFirst();
+            var health = healthOf(current);
+            if (health.rtt < 0) {
+                // none answered, the first one is as good a guess as any
+                Logger.warn(bundle.getString("using-source").formatted(current));
+            } else {
+                Logger.info(ansi().fgBrightGreen().a(bundle.getString("selected-source-lag").formatted(current, Math.round(health.rtt))));
+            }
+            Logger.event("endpoint", "endpoint", current, "host", hosts.get(current), "source", fresh ? "table" : "ping", "rttMs", Math.round(health.rtt),
+                    "bytesPerSecond", Math.round(health.throughput), "errorRate", health.errorRate);
+        }
+        scheduleProbe(fresh ? 0 : PROBE_INTERVAL);
+        return current;
+    }
+
+    // best first, endpoints cooling down after a failure last
+    public @NotNull List<String> ranking(@Nullable String excluded) {
+        var result = new ArrayList<>(hosts.keySet());
+        result.remove(excluded);
+        var assumedThroughput = averageThroughput();
+        result.sort(Comparator.comparing((String name) -> healthOf(name).coolingDown()).thenComparingDouble(name -> healthOf(name).score(assumedThroughput)));
+        return result;
+    }
+
+    // the request went to an endpoint that failed or stalled: remember it and tell the caller where to go instead
+    public @Nullable URI failover(@NotNull URI uri) {
+        var failed = nameOf(uri);
+        if (failed == null) {
+            return null;
+        }
+        healthOf(failed).failure();
+        save();
+        var next = ranking(failed).stream().filter(name -> !healthOf(name).coolingDown()).findFirst().orElse(null);
+        if (next == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (failed.equals(current)) {
+                current = next;
+                Logger.warn(ansi().fgBrightYellow().a(bundle.getString("failover").formatted(failed, next)).fgDefault());
+                Logger.event("endpoint", "endpoint", next, "host", hosts.get(next), "source", "failover", "failed", failed);
+            }
+        }
+        return retarget(uri, next);
+    }
+
+    public void recordTransfer(@NotNull URI uri, long bytes, long nanos) {
+        var name = nameOf(uri);
+        // small bodies say more about the RTT than about the bandwidth
+        if (name == null || bytes < 256 * 1024 || nanos <= 0) {
+            return;
+        }
+        healthOf(name).transfer(bytes * 1_000_000_000.0 / nanos);
+        save();
+    }
+
+    public void recordSuccess(@NotNull URI uri, long nanos) {
+        var name = nameOf(uri);
+        if (name != null) {
+            healthOf(name).success(nanos / 1_000_000.0);
+        }
+    }
+
+    // API calls fail over once, to the best endpoint that has not just failed
+    public <T> @NotNull CompletableFuture<HttpResponse<T>> sendAsync(@NotNull HttpClient client, @NotNull HttpRequest request, @NotNull HttpResponse.BodyHandler<T> handler) {
+        if (nameOf(request.uri()) == null) {
+            return client.sendAsync(request, handler);
+        }
+        var start = System.nanoTime();
+        return client.sendAsync(request, handler).handle((response, error) -> {
+            if (error == null && response.statusCode() < 500) {
+                recordSuccess(request.uri(), System.nanoTime() - start);
+                return CompletableFuture.completedFuture(response);
+            }
+            var next = failover(request.uri());
+            if (next == null) {
+                return error == null ? CompletableFuture.completedFuture(response) : CompletableFuture.<HttpResponse<T>>failedFuture(error);
+            }
+            return client.sendAsync(HttpRequest.newBuilder(request, (name, value) -> true).uri(next).build(), handler);
+        }).thenCompose(future -> future);
+    }
+
+    public @NotNull CompletableFuture<Void> probe() {
+        var futures = new ArrayList<CompletableFuture<?>>(hosts.size());
+        for (var entry : hosts.entrySet()) {
+            var request = HttpRequest.newBuilder(URI.create("https://" + entry.getValue() + "/api/ping"))
+                    .timeout(PROBE_TIMEOUT)
+                    .GET()
+                    .build();
+            var start = System.nanoTime();
+            futures.add(HttpUtils.getClient().sendAsync(request, HttpResponse.BodyHandlers.discarding()).handle((response, error) -> {
+                healthOf(entry.getKey()).probed(error == null && response.statusCode() < 500, (System.nanoTime() - start) / 1_000_000.0);
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenRun(this::save);
+    }
+
+    private synchronized void scheduleProbe(long delay) {
+        if (probeTask != null) {
+            return;
+        }
+        probeTask = new TimerTask() {
+            @Override
+            public void run() {
+                probe().thenRun(EndpointManager.this::switchIfBetter);
+            }
+        };
+        Main.getTimer().schedule(probeTask, delay, PROBE_INTERVAL);
+    }
+
+    private synchronized void switchIfBetter() {
+        if (current == null) {
+            return;
+        }
+        var best = ranking(null).getFirst();
+        var currentHealth = healthOf(current);
+        var assumedThroughput = averageThroughput();
+        if (!best.equals(current) && (currentHealth.coolingDown()
+                || healthOf(best).score(assumedThroughput) < currentHealth.score(assumedThroughput) * SWITCH_MARGIN)) {
+            Logger.event("endpoint", "endpoint", best, "host", hosts.get(best), "source", "probe", "previous", current);
+            current = best;
+        }
+    }
+
+    private double averageThroughput() {
+        return table.values().stream().mapToDouble(health -> health.throughput).filter(throughput -> throughput > 0).average().orElse(0);
+    }
+
+    private Health healthOf(String name) {
+        return table.computeIfAbsent(name, key -> new Health());
+    }
+
+    private @Nullable String nameOf(URI uri) {
+        for (var entry : hosts.entrySet()) {
+            if (entry.getValue().equalsIgnoreCase(uri.getHost())) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    @Contract("_, _ -> new")
+    private @NotNull URI retarget(@NotNull URI uri, @NotNull String name) {
+        try {
+            return new URI(uri.getScheme(), uri.getUserInfo(), hosts.get(name), uri.getPort(), uri.getPath(), uri.getQuery(), uri.getFragment());
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private void load() {
+        if (!tableFile.isFile()) {
+            return;
+        }
+        try {
+            var json = JsonParser.parseString(Files.readString(tableFile.toPath(), StandardCharsets.UTF_8)).getAsJsonObject();
+            for (var entry : json.entrySet()) {
+                if (!hosts.containsKey(entry.getKey())) {
+                    continue;
+                }
+                var jsonObject = entry.getValue().getAsJsonObject();
+                var health = new Health();
+                health.rtt = jsonObject.get("rtt").getAsDouble();
+                health.throughput = jsonObject.get("throughput").getAsDouble();
+                health.errorRate = jsonObject.get("errorRate").getAsDouble();
+                health.lastProbe = jsonObject.get("lastProbe").getAsLong();
+                health.lastFailure = jsonObject.get("lastFailure").getAsLong();
+                table.put(entry.getKey(), health);
+            }
+        } catch (Exception e) {
+            table.clear();
+        }
+    }
+
+    // not under the manager lock, current() holds that while it waits for the first probe to save
+    public void save() {
+        var json = new JsonObject();
+        for (var entry : table.entrySet()) {
+            var health = entry.getValue();
+            var jsonObject = new JsonObject();
+            synchronized (health) {
+                jsonObject.addProperty("rtt", health.rtt);
+                jsonObject.addProperty("throughput", health.throughput);
+                jsonObject.addProperty("errorRate", health.errorRate);
+                jsonObject.addProperty("lastProbe", health.lastProbe);
+                jsonObject.addProperty("lastFailure", health.lastFailure);
+            }
+            json.add(entry.getKey(), jsonObject);
+        }
+        synchronized (tableFile) {
+            try {
+                FileUtils.writeAtomically(tableFile, json.toString());
+            } catch (IOException e) {
+                if (debug()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -23,17 +23,15 @@ public final class VersionListHelperV2 {
     }
 
     public static @NotNull ReleaseBean getLatestRelease() throws IOException, InterruptedException {
-        var client = HttpUtils.getClient();
         var request = HttpRequest.newBuilder(URI.create(getAPIUrl() + "/git/latest-release/PowerNukkitX/PowerNukkitX")).GET().build();
-        var future = client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        var future = HttpUtils.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
         var result = HttpUtils.joinFutureWithPlaceholder(future).body();
         return ReleaseBean.from(JsonParser.parseString(result).getAsJsonObject());
     }
 
     public static @NotNull ReleaseBean @NotNull [] getAllReleases() throws IOException, InterruptedException {
-        var client = HttpUtils.getClient();
         var request = HttpRequest.newBuilder(URI.create(getAPIUrl() + "/git/all-releases/PowerNukkitX/PowerNukkitX")).GET().build();
-        var future = client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        var future = HttpUtils.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
         var result = HttpUtils.joinFutureWithPlaceholder(future).body();
         var jsonArray = JsonParser.parseString(result).getAsJsonArray();
         var releases = new ReleaseBean[jsonArray.size()];
@@ -44,18 +42,20 @@ public final class VersionListHelperV2 {
     }
 
     public static @NotNull BuildBean getLatestBuild() throws IOException, InterruptedException {
-        var client = HttpUtils.getClient();
         var request = HttpRequest.newBuilder(URI.create(getAPIUrl() + "/git/latest-build/PowerNukkitX/PowerNukkitX")).GET().build();
-        var future = client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        var future = HttpUtils.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
         var result = HttpUtils.joinFutureWithPlaceholder(future).body();
         return BuildBean.from(JsonParser.parseString(result).getAsJsonObject());
     }
 
     public static @NotNull CompletableFuture<Map<String, RemoteFileBean>> getLatestReleaseLibs() {
-        var client = HttpUtils.getClient();
+        return getLatestReleaseLibsArtifact().thenCompose(VersionListHelperV2::getReleaseLibsFromArtifact);
+    }
+
+    public static @NotNull CompletableFuture<ArtifactBean> getLatestReleaseLibsArtifact() {
         var request = HttpRequest.newBuilder(URI.create(getAPIUrl() + "/git/latest-release/PowerNukkitX/PowerNukkitX")).GET().build();
         return HttpUtils.warpFutureWithPlaceholder(
-                client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)))
+                HttpUtils.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)))
                 .thenApply(HttpResponse::body)
                 .thenApply(JsonParser::parseString)
                 .thenApply(jsonElement -> {
@@ -66,29 +66,29 @@ public final class VersionListHelperV2 {
                         }
                     }
                     throw new IllegalStateException("No libs.tar.gz found in the latest release");
-                })
-                .thenCompose(VersionListHelperV2::getReleaseLibsFromArtifact);
+                });
     }
 
     public static @NotNull CompletableFuture<Map<String, RemoteFileBean>> getLatestBuildLibs() {
-        var client = HttpUtils.getClient();
+        return getLatestBuildLibsArtifact().thenCompose(VersionListHelperV2::getReleaseLibsFromArtifact);
+    }
+
+    public static @NotNull CompletableFuture<ArtifactBean> getLatestBuildLibsArtifact() {
         var request = HttpRequest.newBuilder(URI.create(getAPIUrl() + "/git/latest-build/PowerNukkitX/PowerNukkitX")).GET().build();
         return HttpUtils.warpFutureWithPlaceholder(
-                client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)))
+                HttpUtils.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)))
                 .thenApply(HttpResponse::body)
                 .thenApply(JsonParser::parseString)
-                .thenApply(jsonElement -> BuildBean.from(jsonElement.getAsJsonObject()).libs())
-                .thenCompose(VersionListHelperV2::getReleaseLibsFromArtifact);
+                .thenApply(jsonElement -> BuildBean.from(jsonElement.getAsJsonObject()).libs());
     }
 
     public static @NotNull CompletableFuture<Map<String, RemoteFileBean>> getReleaseLibsFromArtifact(@NotNull ArtifactBean artifactBean) {
-        var client = HttpUtils.getClient();
         var decompressRequest = HttpRequest.newBuilder()
                 .uri(URI.create(getAPIUrl() + "/download/decompress/" + artifactBean.downloadId()))
                 .GET()
                 .build();
         return HttpUtils.warpFutureWithPlaceholder(
-                client.sendAsync(decompressRequest, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)))
+                HttpUtils.sendAsync(decompressRequest, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)))
                 .thenApply(HttpResponse::body)
                 .thenApply(JsonParser::parseString)
                 .thenCompose(jsonElement ->
@@ -0,0 +1,133 @@
+package cn.powernukkitx.cli.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+
+// memory and cpu limits of the cgroup we run in, the PNX server inherits them
+public final class CGroupUtils {
+    private static final File CGROUP_ROOT = new File("/sys/fs/cgroup");
+    private static final File SELF_CGROUP = new File("/proc/self/cgroup");
+    // v1 reports "unlimited" as a page aligned Long.MAX_VALUE
+    private static final long UNLIMITED = Long.MAX_VALUE / 2;
+
+    private CGroupUtils() {
+
+    }
+
+    public static boolean isV2() {
+        return isV2(CGROUP_ROOT);
+    }
+
+    public static OptionalLong memoryLimit() {
+        if (OSUtils.getOS() != EnumOS.LINUX) {
+            return OptionalLong.empty();
+        }
+        return memoryLimit(CGROUP_ROOT, SELF_CGROUP);
+    }
+
+    // in cpus, e.g. 1.5 for a quota of 150ms every 100ms
+    public static OptionalDouble cpuLimit() {
+        if (OSUtils.getOS() != EnumOS.LINUX) {
+            return OptionalDouble.empty();
+        }
+        return cpuLimit(CGROUP_ROOT, SELF_CGROUP);
+    }
+
+    static OptionalLong memoryLimit(File cgroupRoot, File selfCgroup) {
+        long limit = Long.MAX_VALUE;
+        if (isV2(cgroupRoot)) {
+            for (var dir = ownDir(cgroupRoot, "", selfCgroup); dir != null && dir.getPath().startsWith(cgroupRoot.getPath()); dir = dir.getParentFile()) {
+                limit = Math.min(limit, readLimit(new File(dir, "memory.max")));
+            }
+        } else {
+            var root = new File(cgroupRoot, "memory");
+            for (var dir = ownDir(root, "memory", selfCgroup); dir != null && dir.getPath().startsWith(root.getPath()); dir = dir.getParentFile()) {
+                limit = Math.min(limit, readLimit(new File(dir, "memory.limit_in_bytes")));
+            }
+        }
+        return limit >= UNLIMITED ? OptionalLong.empty() : OptionalLong.of(limit);
+    }
+
+    static OptionalDouble cpuLimit(File cgroupRoot, File selfCgroup) {
+        double limit = Double.MAX_VALUE;
+        if (isV2(cgroupRoot)) {
+            for (var dir = ownDir(cgroupRoot, "", selfCgroup); dir != null && dir.getPath().startsWith(cgroupRoot.getPath()); dir = dir.getParentFile()) {
+                // cpu.max: "<quota|max> <period>"
+                var parts = read(new File(dir, "cpu.max")).split(" ");
+                if (parts.length == 2 && !"max".equals(parts[0])) {
+                    limit = Math.min(limit, Double.parseDouble(parts[0]) / Double.parseDouble(parts[1]));
+                }
+            }
+        } else {
+            var root = new File(cgroupRoot, "cpu");
+            for (var dir = ownDir(root, "cpu", selfCgroup); dir != null && dir.getPath().startsWith(root.getPath()); dir = dir.getParentFile()) {
+                var quota = read(new File(dir, "cpu.cfs_quota_us"));
+                var period = read(new File(dir, "cpu.cfs_period_us"));
+                if (!quota.isEmpty() && !period.isEmpty() && !quota.startsWith("-")) {
+                    limit = Math.min(limit, Double.parseDouble(quota) / Double.parseDouble(period));
+                }
+            }
+        }
+        return limit == Double.MAX_VALUE ? OptionalDouble.empty() : OptionalDouble.of(limit);
+    }
+
+    private static boolean isV2(File cgroupRoot) {
+        return new File(cgroupRoot, "cgroup.controllers").exists();
+    }
+
+    // /proc/self/cgroup: "0::/path" on v2, "4:memory:/path" on v1
+    private static File ownDir(File root, String controller, File selfCgroup) {
+        var paths = new HashMap<String, String>();
+        try {
+            for (var line : Files.readAllLines(selfCgroup.toPath())) {
+                var parts = line.split(":", 3);
+                if (parts.length == 3) {
+                    for (var each : parts[1].split(",")) {
+                        paths.put(each, parts[2]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            return root;
+        }
+        return existingDir(root, paths, controller);
+    }
+
+    private static File existingDir(File root, Map<String, String> paths, String controller) {
+        var path = paths.get(controller);
+        if (path == null) {
+            return root;
+        }
+        // inside a cgroup namespace the mount already is our own cgroup and the path may not exist below it
+        var dir = new File(root, path);
+        while (!dir.isDirectory() && dir.getPath().startsWith(root.getPath())) {
+            dir = dir.getParentFile();
+        }
+        return dir;
+    }
+
+    private static long readLimit(File file) {
+        var value = read(file);
+        if (value.isEmpty() || "max".equals(value)) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static String read(File file) {
+        try {
+            return Files.readString(file.toPath()).trim();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+}
@@ -4,64 +4,246 @@ import org.kamranzafar.jtar.TarEntry;
 import org.kamranzafar.jtar.TarInputStream;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 
 public final class CompressUtils {
     private static final int BUFFER = 4096;
+    private static final int LARGE_BUFFER = 1024 * 1024;
+    private static final int PIPE_SIZE = 8 * 1024 * 1024;
+    private static final ThreadLocal<ByteBuffer> INFLATE_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(256 * 1024));
 
     private CompressUtils() {
 
     }
 
     public static void uncompressZipFile(File source, File folder) throws IOException {
+        folder = folder.getAbsoluteFile();
         if (!folder.exists()) folder.mkdirs();
         else if (!folder.isDirectory()) throw new IllegalArgumentException(folder + " must be directory!");
-        ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new FileInputStream(source)));
-        unZip(zip, folder.getAbsolutePath());
-        zip.close();
+        final ZipDirectory zip;
+        try {
+            zip = ZipDirectory.open(source);
+        } catch (IOException e) {
+            // zip64等中央目录读不了的情况走原来的流式解压
+            try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(source)))) {
+                unZip(zis, folder.getAbsolutePath());
+            }
+            return;
+        }
+        try (zip) {
+            unZip(zip, folder);
+        }
     }
 
     public static void uncompressTGzipFile(File source, File folder) throws IOException {
+        try (InputStream in = new FileInputStream(source)) {
+            uncompressTGzipStream(in, folder);
+        }
+    }
+
+    public static void uncompressTGzipStream(InputStream source, File folder) throws IOException {
+        uncompressTGzipStream(source, folder, null);
+    }
+
+    // source不会被关闭，gzip结束后剩下的字节也留给调用者处理
+    public static void uncompressTGzipStream(InputStream source, File folder, EntryCheck check) throws IOException {
+        folder = folder.getAbsoluteFile();
         if (!folder.exists()) folder.mkdirs();
         else if (!folder.isDirectory()) throw new IllegalArgumentException(folder + " must be directory!");
-        TarInputStream tis = new TarInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(source))));
-        unTar(tis, folder.getAbsolutePath());
-        tis.close();
+        // 解压gzip和写文件分在两个线程，中间用一个大管道衔接
+        final PipedInputStream pipeIn = new PipedInputStream(PIPE_SIZE);
+        final PipedOutputStream pipeOut = new PipedOutputStream(pipeIn);
+        final AtomicReference<IOException> error = new AtomicReference<>();
+        final InputStream unclosable = new FilterInputStream(source) {
+            @Override
+            public void close() {
+
+            }
+        };
+        final Thread decompressor = new Thread(() -> {
+            try (InputStream gzip = new GZIPInputStream(new BufferedInputStream(unclosable, LARGE_BUFFER), LARGE_BUFFER);
+                 OutputStream out = pipeOut) {
+                gzip.transferTo(out);
+            } catch (IOException e) {
+                error.compareAndSet(null, e);
+            }
+        }, "tgz-decompressor");
+        decompressor.setDaemon(true);
+        decompressor.start();
+        try (InputStream buffered = new BufferedInputStream(pipeIn, LARGE_BUFFER)) {
+            unTar(new TarInputStream(buffered), folder, check);
+            // 读完tar结尾的填充，免得解压线程写满管道后报Pipe closed
+            buffered.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw error.get() != null ? error.get() : e;
+        } finally {
+            try {
+                decompressor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
+    // 防止../之类的条目写到目标文件夹外面
+    private static File resolve(File folder, String name) throws IOException {
+        final Path root = folder.toPath().normalize();
+        final Path target = root.resolve(name).normalize();
+        if (!target.startsWith(root)) {
+            throw new IOException("Entry is outside of the target dir: " + name);
+        }
+        return target.toFile();
     }
 
     @SuppressWarnings("ResultOfMethodCallIgnored")
-    private static void unTar(TarInputStream tis, String destFolder) throws IOException {
-        BufferedOutputStream dest;
+    private static void unZip(ZipDirectory zip, File folder) throws IOException {
+        final List<ZipDirectory.Entry> files = new ArrayList<>();
+        for (ZipDirectory.Entry entry : zip.getEntries()) {
+            final File target = resolve(folder, entry.name());
+            if (entry.isDirectory()) {
+                target.mkdirs();
+            } else {
+                target.getParentFile().mkdirs();
+                files.add(entry);
+            }
+        }
+        // 各条目互不依赖，直接在公共ForkJoin池上并行解压
+        try {
+            files.parallelStream().forEach(entry -> {
+                try {
+                    extract(zip, entry, resolve(folder, entry.name()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
+    // the zip is read with plain positional reads, a mapping would keep it locked on Windows and the caller deletes it right after
+    private static void extract(ZipDirectory zip, ZipDirectory.Entry entry, File target) throws IOException {
+        try (InputStream data = zip.openRaw(entry); RandomAccessFile file = new RandomAccessFile(target, "rw"); FileChannel channel = file.getChannel()) {
+            file.setLength(entry.size());
+            final byte[] input = new byte[(int) Math.min(BUFFER * 16, Math.max(1, entry.compressedSize()))];
+            // what ZipInputStream used to check for us: a flipped bit must not extract successfully
+            final CRC32 crc = new CRC32();
+            long position = 0;
+            if (entry.method() == ZipEntry.STORED) {
+                int n;
+                while ((n = data.read(input)) != -1) {
+                    crc.update(input, 0, n);
+                    final ByteBuffer buffer = ByteBuffer.wrap(input, 0, n);
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                }
+            } else if (entry.method() == ZipEntry.DEFLATED) {
+                final Inflater inflater = new Inflater(true);
+                final ByteBuffer buffer = INFLATE_BUFFER.get();
+                boolean eof = false;
+                try {
+                    while (!inflater.finished()) {
+                        if (inflater.needsInput()) {
+                            final int n = data.read(input);
+                            if (n == -1) {
+                                if (eof) {
+                                    throw new EOFException("Truncated entry " + entry.name());
+                                }
+                                // nowrap inflating may want one dummy byte past the end
+                                eof = true;
+                                inflater.setInput(new byte[1]);
+                            } else {
+                                inflater.setInput(input, 0, n);
+                            }
+                        }
+                        buffer.clear();
+                        final int n = inflater.inflate(buffer);
+                        if (n == 0 && inflater.needsDictionary()) {
+                            throw new EOFException("Truncated entry " + entry.name());
+                        }
+                        buffer.flip();
+                        crc.update(buffer.duplicate());
+                        while (buffer.hasRemaining()) {
+                            position += channel.write(buffer, position);
+                        }
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException(e);
+                } finally {
+                    inflater.end();
+                }
+            } else {
+                throw new IOException("Unsupported compression method " + entry.method() + " of " + entry.name());
+            }
+            if (position != entry.size()) {
+                throw new IOException("Size mismatch of " + entry.name());
+            }
+            if (crc.getValue() != entry.crc()) {
+                throw new ZipException("CRC mismatch of " + entry.name());
+            }
+        }
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private static void unTar(TarInputStream tis, File folder, EntryCheck check) throws IOException {
+        final byte[] data = new byte[LARGE_BUFFER];
+        final MessageDigest digest;
+        try {
+            digest = check == null ? null : MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
         TarEntry entry;
         while ((entry = tis.getNextEntry()) != null) {
-            int count;
-            byte[] data = new byte[BUFFER];
-
+            final File target = resolve(folder, entry.getName());
             if (entry.isDirectory()) {
-                new File(destFolder + "/" + entry.getName()).mkdirs();
+                target.mkdirs();
                 continue;
-            } else {
-                int di = entry.getName().lastIndexOf('/');
-                if (di != -1) {
-                    new File(destFolder + "/" + entry.getName().substring(0, di)).mkdirs();
-                }
             }
-
-            FileOutputStream fos = new FileOutputStream(destFolder + "/" + entry.getName());
-            dest = new BufferedOutputStream(fos);
-
-            while ((count = tis.read(data)) != -1) {
-                dest.write(data, 0, count);
+            target.getParentFile().mkdirs();
+            try (RandomAccessFile file = new RandomAccessFile(target, "rw"); FileChannel channel = file.getChannel()) {
+                file.setLength(entry.getSize());
+                long position = 0;
+                int count;
+                while ((count = tis.read(data)) != -1) {
+                    if (digest != null) {
+                        digest.update(data, 0, count);
+                    }
+                    final ByteBuffer buffer = ByteBuffer.wrap(data, 0, count);
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                }
+                if (check != null) {
+                    check.check(entry.getName(), position, FileUtils.bytesToHex(digest.digest()));
+                }
             }
-
-            dest.flush();
-            dest.close();
         }
     }
 
+    // called for every file unpacked from a tar with what was really written, throwing stops the whole extraction
+    public interface EntryCheck {
+        void check(String name, long size, String md5) throws IOException;
+    }
+
     @SuppressWarnings("ResultOfMethodCallIgnored")
     private static void unZip(ZipInputStream tis, String destFolder) throws IOException {
         BufferedOutputStream dest;
@@ -72,16 +254,13 @@ public final class CompressUtils {
             byte[] data = new byte[BUFFER];
 
             if (entry.isDirectory()) {
-                new File(destFolder + "/" + entry.getName()).mkdirs();
+                resolve(new File(destFolder), entry.getName()).mkdirs();
                 continue;
-            } else {
-                int di = entry.getName().lastIndexOf('/');
-                if (di != -1) {
-                    new File(destFolder + "/" + entry.getName().substring(0, di)).mkdirs();
-                }
             }
+            final File target = resolve(new File(destFolder), entry.getName());
+            target.getParentFile().mkdirs();
 
-            FileOutputStream fos = new FileOutputStream(destFolder + "/" + entry.getName());
+            FileOutputStream fos = new FileOutputStream(target);
             dest = new BufferedOutputStream(fos);
 
             while ((count = tis.read(data)) != -1) {
@@ -88,6 +88,52 @@ public final class ConfigUtils {
         return Boolean.parseBoolean(configMap.getOrDefault("auto-restart", "false"));
     }
 
+    // <exit code|*>:<stop|restart|immediate> pairs, 130 and 143 are SIGINT and SIGTERM
+    public static String restartPolicy() {
+        return configMap.getOrDefault("restart-policy", "0:stop 130:stop 143:stop *:restart");
+    }
+
+    public static boolean hotStandby() {
+        return Boolean.parseBoolean(configMap.getOrDefault("hot-standby", "false"));
+    }
+
+    public static @Nullable String consoleSocket() {
+        return configMap.get("console-socket");
+    }
+
+    public static String logFormat() {
+        return configMap.getOrDefault("log-format", "text");
+    }
+
+    public static boolean outputPump() {
+        return Boolean.parseBoolean(configMap.getOrDefault("output-pump", "false"));
+    }
+
+    public static long outputBufferSize() {
+        return StringUtils.parseBytes(configMap.getOrDefault("output-buffer-size", "16m"));
+    }
+
+    public static String outputOverflow() {
+        return configMap.getOrDefault("output-overflow", "summary");
+    }
+
+    // relative to the server dir, empty to write no console log
+    public static String consoleLog() {
+        return configMap.getOrDefault("console-log", "logs/console.log");
+    }
+
+    public static long consoleLogSize() {
+        return StringUtils.parseBytes(configMap.getOrDefault("console-log-size", "10m"));
+    }
+
+    public static int consoleLogFiles() {
+        return Math.max(0, Integer.parseInt(configMap.getOrDefault("console-log-files", "5")));
+    }
+
+    public static int maxQuickRestarts() {
+        return Math.max(1, Integer.parseInt(configMap.getOrDefault("max-quick-restarts", "5")));
+    }
+
     public static boolean debug() {
         return Boolean.parseBoolean(configMap.getOrDefault("debug", "false"));
     }
@@ -101,6 +147,22 @@ public final class ConfigUtils {
         configMap.put(key, value);
     }
 
+    public static void remove(String key) {
+        if (configMap.remove(key) != null) {
+            hasChanged.set(true);
+        }
+    }
+
+    // fixes values older versions wrote on their own, each one runs once per config file so later user edits stay
+    public static synchronized void migrateOnce(String name, Runnable migration) {
+        var done = new LinkedHashSet<>(Arrays.asList(configMap.getOrDefault("migrations", "").trim().split("\\s+")));
+        done.remove("");
+        if (done.add(name)) {
+            migration.run();
+            set("migrations", String.join(" ", done));
+        }
+    }
+
     public static String forceLang() {
         return configMap.get("language");
     }
@@ -117,16 +179,16 @@ public final class ConfigUtils {
         return configMap.getOrDefault("jvmPath", "").split(File.pathSeparator);
     }
 
-    public static String maxVMMemory() {
-        if (configMap.containsKey("vmMemory")) {
-            return configMap.get("vmMemory");
-        } else {
+    // null unless set by the user, the heap is sized from the host or container limits on every start then
+    public static @Nullable String maxVMMemory() {
+        // older versions wrote the total host memory in here on the first run, that is no choice of the user
+        migrateOnce("auto-vm-memory", () -> {
             var bean = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
-            var mem = (bean.getTotalMemorySize() / 1024 / 1024) + "m";
-            configMap.put("vmMemory", mem);
-            hasChanged.set(true);
-            return mem;
-        }
+            if ((bean.getTotalMemorySize() / 1024 / 1024 + "m").equals(configMap.get("vmMemory"))) {
+                remove("vmMemory");
+            }
+        });
+        return configMap.get("vmMemory");
     }
 
     public static String[] vmParams() {
@@ -161,6 +223,30 @@ public final class ConfigUtils {
         return new InetSocketAddress(split[0], Integer.parseInt(split[1]));
     }
 
+    public static int downloadThreads() {
+        return Math.max(1, Integer.parseInt(configMap.getOrDefault("download-threads", "4")));
+    }
+
+    public static boolean appCDS() {
+        return Boolean.parseBoolean(configMap.getOrDefault("app-cds", "true"));
+    }
+
+    public static boolean graalJIT() {
+        return Boolean.parseBoolean(configMap.getOrDefault("graal-jit", "true"));
+    }
+
+    public static String launchProfile() {
+        return configMap.getOrDefault("profile", "default");
+    }
+
+    public static long jvmProbeTimeout() {
+        return Math.max(100, Long.parseLong(configMap.getOrDefault("jvm-probe-timeout", "3000")));
+    }
+
+    public static long cacheSize() {
+        return StringUtils.parseBytes(configMap.getOrDefault("cache-size", "1g"));
+    }
+
     public static @Nullable String apiEndpoint() {
         return configMap.get("api-endpoint");
     }
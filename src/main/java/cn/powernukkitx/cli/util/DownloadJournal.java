@@ -0,0 +1,165 @@
+package cn.powernukkitx.cli.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// sidecar of a partially downloaded file: the byte ranges already on disk and the ETag/Last-Modified they belong to
+public final class DownloadJournal {
+    private final File journalFile;
+    private final String url;
+    private final String validator;
+    private final long totalLength;
+    private final List<Segment> segments;
+    private boolean closed = false;
+
+    private DownloadJournal(File journalFile, String url, String validator, long totalLength, List<Segment> segments) {
+        this.journalFile = journalFile;
+        this.url = url;
+        this.validator = validator;
+        this.totalLength = totalLength;
+        this.segments = segments;
+    }
+
+    public static @NotNull File journalFileOf(@NotNull File target) {
+        return new File(target.getParentFile(), target.getName() + ".journal");
+    }
+
+    public static @NotNull DownloadJournal create(@NotNull File target, @NotNull String url, @Nullable String validator, long totalLength, int segmentCount) {
+        var segments = new ArrayList<Segment>(segmentCount);
+        var segmentSize = totalLength / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            var from = i * segmentSize;
+            var to = i == segmentCount - 1 ? totalLength - 1 : from + segmentSize - 1;
+            segments.add(new Segment(from, to, from));
+        }
+        return new DownloadJournal(journalFileOf(target), url, validator, totalLength, segments);
+    }
+
+    public static @Nullable DownloadJournal load(@NotNull File target, @NotNull String url, @Nullable String validator, long totalLength) {
+        var journalFile = journalFileOf(target);
+        if (validator == null || !journalFile.exists() || !target.exists() || target.length() != totalLength) {
+            return null;
+        }
+        try {
+            var json = JsonParser.parseString(Files.readString(journalFile.toPath(), StandardCharsets.UTF_8)).getAsJsonObject();
+            if (!url.equals(json.get("url").getAsString()) || !validator.equals(json.get("validator").getAsString())
+                    || json.get("totalLength").getAsLong() != totalLength) {
+                return null;
+            }
+            var segments = new ArrayList<Segment>();
+            for (var each : json.get("segments").getAsJsonArray()) {
+                var segment = each.getAsJsonObject();
+                segments.add(new Segment(segment.get("from").getAsLong(), segment.get("to").getAsLong(), segment.get("position").getAsLong()));
+            }
+            return new DownloadJournal(journalFile, url, validator, totalLength, segments);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public static @Nullable String validatorOf(@NotNull HttpResponse<?> response) {
+        // weak ETags are not allowed in If-Range
+        var eTag = response.headers().firstValue("ETag").orElse(null);
+        if (eTag != null && !eTag.startsWith("W/")) {
+            return eTag;
+        }
+        return response.headers().firstValue("Last-Modified").orElse(null);
+    }
+
+    public boolean resumable() {
+        return validator != null;
+    }
+
+    public String getValidator() {
+        return validator;
+    }
+
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    public long completedBytes() {
+        long completed = 0;
+        for (var segment : segments) {
+            completed += segment.position.get() - segment.from;
+        }
+        return completed;
+    }
+
+    public synchronized void save() {
+        if (!resumable() || closed) {
+            return;
+        }
+        var json = new JsonObject();
+        json.addProperty("url", url);
+        json.addProperty("validator", validator);
+        json.addProperty("totalLength", totalLength);
+        var array = new JsonArray();
+        for (var segment : segments) {
+            var each = new JsonObject();
+            each.addProperty("from", segment.from);
+            each.addProperty("to", segment.to);
+            each.addProperty("position", segment.position.get());
+            array.add(each);
+        }
+        json.add("segments", array);
+        try {
+            FileUtils.writeAtomically(journalFile, json.toString());
+        } catch (IOException ignore) {
+
+        }
+    }
+
+    public synchronized void delete() {
+        closed = true;
+        try {
+            Files.deleteIfExists(journalFile.toPath());
+        } catch (IOException ignore) {
+
+        }
+    }
+
+    public static final class Segment {
+        private final long from;
+        private final long to;
+        private final AtomicLong position;
+
+        public Segment(long from, long to, long position) {
+            this.from = from;
+            this.to = to;
+            this.position = new AtomicLong(position);
+        }
+
+        public long getFrom() {
+            return from;
+        }
+
+        public long getTo() {
+            return to;
+        }
+
+        public AtomicLong getPosition() {
+            return position;
+        }
+
+        public boolean isDone() {
+            return position.get() > to;
+        }
+    }
+}
@@ -3,16 +3,22 @@ package cn.powernukkitx.cli.util;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Comparator;
 
 public final class FileUtils {
+    // direct buffers skip the copy through the java heap, one per hashing thread
+    private static final ThreadLocal<ByteBuffer> HASH_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(1024 * 1024));
+
     private FileUtils() {
 
     }
@@ -33,19 +39,40 @@ public final class FileUtils {
     }
 
     public static @NotNull String getMD5(@NotNull File file) throws IOException {
-        try (var bufferedInputStream = new BufferedInputStream(new FileInputStream(file))) {
-            var MD5 = MessageDigest.getInstance("MD5");
-            byte[] buffer = new byte[4096];
-            int length;
-            while ((length = bufferedInputStream.read(buffer)) != -1) {
-                MD5.update(buffer, 0, length);
+        return digest(file, "MD5");
+    }
+
+    // maven central publishes sha1 sums next to every artifact
+    public static @NotNull String getSHA1(@NotNull File file) throws IOException {
+        return digest(file, "SHA-1");
+    }
+
+    private static @NotNull String digest(@NotNull File file, @NotNull String algorithm) throws IOException {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            var digest = MessageDigest.getInstance(algorithm);
+            var buffer = HASH_BUFFER.get();
+            while (channel.read(buffer.clear()) != -1) {
+                digest.update(buffer.flip());
             }
-            return bytesToHex(MD5.digest());
+            return bytesToHex(digest.digest());
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
     }
 
+    public static void writeAtomically(@NotNull File file, @NotNull String content) throws IOException {
+        var dir = file.getAbsoluteFile().getParentFile();
+        //noinspection ResultOfMethodCallIgnored
+        dir.mkdirs();
+        var tmp = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+        try {
+            Files.writeString(tmp, content, StandardCharsets.UTF_8);
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
     @Contract(pure = true, value = "_ -> new")
     public static @NotNull String bytesToHex(byte @NotNull [] bytes) {
         var result = new StringBuilder();
@@ -1,11 +1,12 @@
 package cn.powernukkitx.cli.util;
 
+import cn.powernukkitx.cli.data.cache.JarIndex;
+
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 public final class GitUtils {
     private static FullGitInfo selfGitInfo = null;
@@ -20,10 +21,7 @@ public final class GitUtils {
             if (stream != null) {
                 try (final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
                     final Map<String, String> infos = INIParser.parseINI(reader);
-                    selfGitInfo = new FullGitInfo().setTime(infos.getOrDefault("git.commit.time", "Unknown"))
-                            .setMainVersion(infos.getOrDefault("git.build.version", "Unknown"))
-                            .setCommitID(infos.getOrDefault("git.commit.id.abbrev", "Unknown"))
-                            .setBranchID(infos.getOrDefault("git.branch", "Unknown"));
+                    selfGitInfo = toFullGitInfo(infos);
                     return Optional.of(selfGitInfo);
                 }
             }
@@ -40,25 +38,17 @@ public final class GitUtils {
         if (!jarFile.getName().endsWith(".jar")) {
             return Optional.empty();
         }
-        try (final JarFile jar = new JarFile(jarFile)) {
-            final JarEntry entry = jar.getJarEntry("git.properties");
-            if (entry != null) {
-                try (final InputStream stream = jar.getInputStream(entry)) {
-                    if (stream != null) {
-                        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
-                            final Map<String, String> infos = INIParser.parseINI(reader);
-                            return Optional.of(new FullGitInfo().setTime(infos.getOrDefault("git.commit.time", "Unknown"))
-                                    .setMainVersion(infos.getOrDefault("git.build.version", "Unknown"))
-                                    .setCommitID(infos.getOrDefault("git.commit.id.abbrev", "Unknown"))
-                                    .setBranchID(infos.getOrDefault("git.branch", "Unknown")));
-                        }
-                    }
-                }
-            }
-        } catch (IOException e) {
-            return Optional.empty();
-        }
-        return Optional.empty();
+        final var index = JarIndex.getInstance();
+        final var gitInfo = index.scan(jarFile, List.of()).gitInfo();
+        index.save();
+        return Optional.ofNullable(gitInfo);
+    }
+
+    public static FullGitInfo toFullGitInfo(Map<String, String> infos) {
+        return new FullGitInfo().setTime(infos.getOrDefault("git.commit.time", "Unknown"))
+                .setMainVersion(infos.getOrDefault("git.build.version", "Unknown"))
+                .setCommitID(infos.getOrDefault("git.commit.id.abbrev", "Unknown"))
+                .setBranchID(infos.getOrDefault("git.branch", "Unknown"));
     }
 
     public static class FullGitInfo {
@@ -2,22 +2,36 @@ package cn.powernukkitx.cli.util;
 
 import cn.powernukkitx.cli.Main;
 import cn.powernukkitx.cli.data.bean.RequestIDBean;
+import cn.powernukkitx.cli.data.remote.EndpointManager;
 import org.fusesource.jansi.Ansi;
 import org.fusesource.jansi.AnsiConsole;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.ProxySelector;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static cn.powernukkitx.cli.util.ConfigUtils.debug;
 import static cn.powernukkitx.cli.util.StringUtils.displayableBytes;
@@ -33,7 +47,12 @@ public final class HttpUtils {
             "official", "www.powernukkitx.com",
             "nullatom", "pnx.nullatom.com"
     );
-    private static String selectedApi = null;
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+    // HttpClient has no read timeout, a download that got no byte for this long is given up on
+    private static final long STALL_TIMEOUT = 20_000;
+    // a file replaced on the server while we download it, more often than this and it is given up on
+    private static final int MAX_RESTARTS = 2;
 
     public static HttpClient client = null;
 
@@ -54,47 +73,13 @@ public final class HttpUtils {
         return getAPIUrl("");
     }
 
-    public record EndpointAndPing(String endpoint, long ping) {
-    }
-
     public static @NotNull String getAPIUrl(@NotNull String path) {
-        if (selectedApi == null) {
-            if (ConfigUtils.apiEndpoint() != null) {
-                selectedApi = ConfigUtils.apiEndpoint();
-                Logger.info(bundle.getString("using-source").formatted(selectedApi));
-            } else {
-                Logger.info(ansi().fgBrightYellow().a(bundle.getString("detecting")));
-                // ping and find the fastest API endpoint use /api/ping
-                var pingList = pingAPIEndpoints().values();
-                // if any api endpoint is available, return it
-                var result = ((EndpointAndPing) CompletableFuture.anyOf(pingList.toArray(CompletableFuture[]::new)).join());
-                for (var future : pingList) {
-                    if (!future.isDone()) future.cancel(true);
-                }
-                selectedApi = result.endpoint();
-                ConfigUtils.set("api-endpoint", selectedApi);
-                Logger.info(ansi().fgBrightGreen().a(bundle.getString("selected-source-lag").formatted(selectedApi, result.ping())));
-            }
-        }
-        return "https://" + API_ADDRESSES.get(selectedApi) + "/api" + path;
+        return "https://" + EndpointManager.getInstance().currentHost() + "/api" + path;
     }
 
-    public static @NotNull Map<String, CompletableFuture<EndpointAndPing>> pingAPIEndpoints() {
-        var pingList = new LinkedHashMap<String, CompletableFuture<EndpointAndPing>>();
-        for (var entry : API_ADDRESSES.entrySet()) {
-            var request = HttpRequest.newBuilder()
-                    .GET()
-                    .uri(URI.create("https://" + entry.getValue() + "/api/ping"))
-                    .build();
-            try {
-                var future = getClient().sendAsync(request, HttpResponse.BodyHandlers.discarding());
-                var start = System.currentTimeMillis();
-                pingList.put(entry.getKey(), future.thenApply(response -> ((System.currentTimeMillis() - start) / 2))
-                        .exceptionally(e -> Long.MAX_VALUE).thenApply(e -> new EndpointAndPing(entry.getKey(), e)));
-            } catch (Exception ignore) {
-            }
-        }
-        return pingList;
+    // fails over to another endpoint when an API request errors
+    public static <T> @NotNull CompletableFuture<HttpResponse<T>> sendAsync(@NotNull HttpRequest request, @NotNull HttpResponse.BodyHandler<T> handler) {
+        return EndpointManager.getInstance().sendAsync(getClient(), request, handler);
     }
 
     public static <T> T joinFutureWithPlaceholder(@NotNull CompletableFuture<T> connectionFuture) {
@@ -119,9 +104,8 @@ public final class HttpUtils {
                         return;
                     }
                     time++;
-                    Logger.raw(ansi().fgBrightYellow().a("[").a("/-\\|".charAt(time % 4))
-                            .a("] ").a(".".repeat(time % 7)).reset().toString());
-                    Logger.ProgressPrefixLength.addAndGet(4 + time % 7);
+                    Logger.progress(ansi().fgBrightYellow().a("[").a("/-\\|".charAt(time % 4))
+                            .a("] ").a(".".repeat(time % 7)).reset().toString(), 4 + time % 7);
                 }
             };
             timer.schedule(timerTask, 10, 250);
@@ -158,9 +142,8 @@ public final class HttpUtils {
                             return;
                         }
                         time++;
-                        Logger.raw(ansi().fgBrightYellow().a("[").a("/-\\|".charAt(time % 4))
-                                .a("] ").a(".".repeat(time % 7)).reset().toString());
-                        Logger.ProgressPrefixLength.addAndGet(4 + time % 7);
+                        Logger.progress(ansi().fgBrightYellow().a("[").a("/-\\|".charAt(time % 4))
+                                .a("] ").a(".".repeat(time % 7)).reset().toString(), 4 + time % 7);
                     }
                 };
                 timer.schedule(timerTask, 10, 250);
@@ -177,6 +160,8 @@ public final class HttpUtils {
 
     public static @NotNull CompletableFuture<String> getDelayedResponse(@NotNull Timer timer, RequestIDBean requestIDBean) {
         var completableFuture = new CompletableFuture<String>();
+        // only the endpoint that took the request knows its id, so this one never fails over
+        var uri = URI.create(getAPIUrl("/delayed/query/") + requestIDBean.uuid());
         var timerTask = new TimerTask() {
             private int retry = 0;
 
@@ -184,7 +169,7 @@ public final class HttpUtils {
             public void run() {
                 try {
                     this.retry++;
-                    var request = HttpRequest.newBuilder(URI.create(getAPIUrl("/delayed/query/") + requestIDBean.uuid())).GET().build();
+                    var request = HttpRequest.newBuilder(uri).GET().build();
                     var response = getClient().send(request, HttpResponse.BodyHandlers.ofString());
                     if (response.statusCode() == 200) {
                         completableFuture.complete(response.body());
@@ -221,23 +206,30 @@ public final class HttpUtils {
     }
 
     public static boolean downloadWithBar(HttpRequest request, File target, String displayName, long estimatedSize, Timer timer) {
+        var journal = new AtomicReference<DownloadJournal>();
+        TimerTask task = null;
         try {
-            var client = getClient();
             Logger.info(ansi().fgBrightDefault().a(new Formatter().format(bundle.getString("connecting"), request.uri().toURL())).fgDefault().toString());
             Logger.raw("");
             var contentLength = new AtomicLong();
-            var atomicLong = new AtomicLong(0);
-            var task = new TimerTask() {
+            var downloaded = new AtomicLong(0);
+            task = new TimerTask() {
+                private int ticks = 0;
+                private long last = -1;
+
                 @Override
                 public void run() {
+                    var currentJournal = journal.get();
+                    if (currentJournal != null && ++ticks % 4 == 0) {
+                        currentJournal.save();
+                    }
                     if (contentLength.get() > 0) {
                         try {
-                            final long finished = target.length();
+                            final long finished = downloaded.get();
                             final long total = contentLength.get();
-                            final long speed = finished - atomicLong.get();
-                            atomicLong.set(finished);
-                            bar((float) (finished * 1.0 / total), displayableBytes(finished) + "/" +
-                                    displayableBytes(total) + " (" + displayableBytes(speed) + "/s)");
+                            final long speed = last < 0 ? 0 : finished - last;
+                            last = finished;
+                            progress(displayName, finished, total, speed * 2);
                             if (finished == total) {
                                 this.cancel();
                             }
@@ -250,29 +242,132 @@ public final class HttpUtils {
                 }
             };
             timer.scheduleAtFixedRate(task, 500, 500);
-            if (!target.exists()) {
-                //noinspection ResultOfMethodCallIgnored
-                target.getParentFile().mkdirs();
-                //noinspection ResultOfMethodCallIgnored
-                target.createNewFile();
+            if (!transfer(request, target, estimatedSize, downloaded, contentLength, journal, ConfigUtils.downloadThreads())) {
+                task.cancel();
+                Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("fail"), displayName)).fgDefault());
+                Logger.event("download", "name", displayName, "url", request.uri().toString(), "success", false);
+                return false;
+            }
+            task.cancel();
+            Logger.raw(ansi().saveCursorPosition().cursorUpLine().eraseLine() + System.lineSeparator());
+            Logger.info(ansi().fgBrightGreen().a(new Formatter().format(bundle.getString("success"), displayName)).fgDefault());
+            Logger.event("download", "name", displayName, "url", request.uri().toString(), "success", true);
+            return true;
+        } catch (Exception e) {
+            if (task != null) {
+                task.cancel();
+            }
+            if (journal.get() != null) {
+                journal.get().save();
             }
-            try (var fos = new FileOutputStream(target)) {
-                var response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
-                if (response.statusCode() != 200) {
-                    Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("fail"), displayName)).fgDefault());
-                    return false;
+            Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("fail"), displayName)).fgDefault());
+            Logger.event("download", "name", displayName, "url", request.uri().toString(), "success", false);
+            if (debug()) {
+                e.printStackTrace();
+            }
+            return false;
+        }
+    }
+
+    public static boolean download(long downloadId, File target, AtomicLong downloaded, int connections) {
+        return download(HttpRequest.newBuilder(URI.create(getAPIUrl("/download/") + downloadId)).GET().build(), target, downloaded, connections);
+    }
+
+    // same as downloadWithBar but silent, for callers drawing their own progress over several downloads;
+    // connections caps the ranges fetched at once, callers running downloads in parallel share download-threads between them
+    public static boolean download(HttpRequest request, File target, AtomicLong downloaded, int connections) {
+        var journal = new AtomicReference<DownloadJournal>();
+        try {
+            return transfer(request, target, 0, downloaded, new AtomicLong(), journal, Math.max(1, connections));
+        } catch (Exception e) {
+            if (journal.get() != null) {
+                journal.get().save();
+            }
+            if (debug()) {
+                e.printStackTrace();
+            }
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    public interface BodyConsumer {
+        void accept(InputStream body) throws IOException;
+    }
+
+    public static boolean streamWithBar(long downloadId, String displayName, long estimatedSize, Timer timer, BodyConsumer consumer) {
+        return streamWithBar(HttpRequest.newBuilder(URI.create(getAPIUrl("/download/") + downloadId)).GET().build(), displayName, estimatedSize, timer, consumer);
+    }
+
+    // like downloadWithBar, but the body goes to the consumer while it arrives instead of to a file
+    public static boolean streamWithBar(HttpRequest request, String displayName, long estimatedSize, Timer timer, BodyConsumer consumer) {
+        TimerTask task = null;
+        try {
+            Logger.info(ansi().fgBrightDefault().a(new Formatter().format(bundle.getString("connecting"), request.uri().toURL())).fgDefault().toString());
+            HttpResponse<InputStream> response;
+            try {
+                response = getClient().send(request, HttpResponse.BodyHandlers.ofInputStream());
+            } catch (IOException e) {
+                // nothing was handed to the consumer yet, the next endpoint can still serve it
+                var next = EndpointManager.getInstance().failover(request.uri());
+                if (next == null) {
+                    throw e;
                 }
-                try (var fis = response.body()) {
-                    contentLength.set(response.headers().firstValueAsLong("Content-Length").orElse(estimatedSize));
-                    fis.transferTo(fos);
+                request = copyRequest(request).uri(next).build();
+                response = getClient().send(request, HttpResponse.BodyHandlers.ofInputStream());
+            }
+            if (response.statusCode() != 200) {
+                response.body().close();
+                throw new IOException("Unexpected status code " + response.statusCode());
+            }
+            var contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            var total = contentLength >= 0 ? contentLength : estimatedSize;
+            var downloaded = new AtomicLong(0);
+            Logger.raw("");
+            task = new TimerTask() {
+                private long last = -1;
+
+                @Override
+                public void run() {
+                    final long finished = downloaded.get();
+                    final long speed = last < 0 ? 0 : finished - last;
+                    last = finished;
+                    progress(displayName, finished, total, speed * 2);
+                }
+            };
+            timer.scheduleAtFixedRate(task, 500, 500);
+            try (var body = new FilterInputStream(response.body()) {
+                @Override
+                public int read() throws IOException {
+                    var b = super.read();
+                    if (b != -1) downloaded.incrementAndGet();
+                    return b;
+                }
+
+                @Override
+                public int read(byte @NotNull [] b, int off, int len) throws IOException {
+                    var n = super.read(b, off, len);
+                    if (n > 0) downloaded.addAndGet(n);
+                    return n;
                 }
+            }) {
+                consumer.accept(body);
+            }
+            // nothing was written to disk that we could look at afterwards, so a cut connection has to be caught here
+            if (contentLength >= 0 && downloaded.get() != contentLength) {
+                throw new IOException("Expected " + contentLength + " bytes but received " + downloaded.get());
             }
-            AnsiConsole.out().println(ansi().saveCursorPosition().cursorUpLine().eraseLine());
             task.cancel();
+            Logger.raw(ansi().saveCursorPosition().cursorUpLine().eraseLine() + System.lineSeparator());
             Logger.info(ansi().fgBrightGreen().a(new Formatter().format(bundle.getString("success"), displayName)).fgDefault());
+            Logger.event("download", "name", displayName, "url", request.uri().toString(), "success", true);
             return true;
         } catch (Exception e) {
+            if (task != null) {
+                task.cancel();
+            }
             Logger.error(ansi().fgBrightRed().a(new Formatter().format(bundle.getString("fail"), displayName)).fgDefault());
+            Logger.event("download", "name", displayName, "url", request.uri().toString(), "success", false);
             if (debug()) {
                 e.printStackTrace();
             }
@@ -280,6 +375,267 @@ public final class HttpUtils {
         }
     }
 
+    // a download from an API endpoint that errors or stalls starts over from the next best endpoint
+    private static boolean transfer(HttpRequest request, File target, long estimatedSize, AtomicLong downloaded, AtomicLong contentLength,
+                                    AtomicReference<DownloadJournal> journal, int connections) throws IOException, InterruptedException {
+        var endpoints = EndpointManager.getInstance();
+        var restarts = 0;
+        while (true) {
+            var before = downloaded.get();
+            var start = System.nanoTime();
+            var watch = new StallWatch(downloaded);
+            Main.getTimer().schedule(watch, STALL_TIMEOUT, STALL_TIMEOUT);
+            try {
+                var ok = transfer(request, target, estimatedSize, downloaded, contentLength, journal, connections, watch);
+                if (ok) {
+                    endpoints.recordTransfer(request.uri(), downloaded.get() - before, System.nanoTime() - start);
+                }
+                return ok;
+            } catch (ChangedOnServerException e) {
+                // the endpoint is fine, the file is just newer than our journal: start over from zero on the same url
+                // its journal is deleted already, saving it on the way out would only bring it back
+                journal.set(null);
+                if (++restarts > MAX_RESTARTS) {
+                    throw e;
+                }
+                downloaded.set(before);
+            } catch (IOException e) {
+                var next = endpoints.failover(request.uri());
+                if (next == null) {
+                    throw e;
+                }
+                if (debug()) {
+                    e.printStackTrace();
+                }
+                if (journal.get() != null) {
+                    journal.get().save();
+                }
+                downloaded.set(before);
+                request = copyRequest(request).uri(next).build();
+            } finally {
+                watch.cancel();
+            }
+        }
+    }
+
+    private static boolean transfer(HttpRequest request, File target, long estimatedSize, AtomicLong downloaded, AtomicLong contentLength,
+                                    AtomicReference<DownloadJournal> journal, int connections, StallWatch watch) throws IOException, InterruptedException {
+        var client = getClient();
+        if (!target.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            target.getAbsoluteFile().getParentFile().mkdirs();
+        }
+        // probe with a one byte range, servers without range support simply answer 200 with the whole body
+        var response = client.send(copyRequest(request).header("Range", "bytes=0-0").build(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 416) {
+            response.body().close();
+            response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        }
+        var totalLength = parseContentRangeTotal(response);
+        if (response.statusCode() == 206 && totalLength > 0) {
+            response.body().close();
+            contentLength.set(totalLength);
+            var url = request.uri().toString();
+            var validator = DownloadJournal.validatorOf(response);
+            var resumed = DownloadJournal.load(target, url, validator, totalLength);
+            if (resumed != null) {
+                Logger.info(ansi().fgBrightDefault().a(new Formatter().format(bundle.getString("resuming"),
+                        displayableBytes(resumed.completedBytes()), displayableBytes(totalLength))).fgDefault());
+            } else {
+                var segmentCount = (int) Math.max(1, Math.min(connections, totalLength / MIN_SEGMENT_SIZE));
+                resumed = DownloadJournal.create(target, url, validator, totalLength, segmentCount);
+            }
+            journal.set(resumed);
+            downloaded.addAndGet(resumed.completedBytes());
+            resumed.save();
+            downloadSegmented(response.uri(), request, target, resumed, downloaded, connections, watch);
+            resumed.delete();
+            return true;
+        } else if (response.statusCode() == 200) {
+            Files.deleteIfExists(DownloadJournal.journalFileOf(target).toPath());
+            contentLength.set(response.headers().firstValueAsLong("Content-Length").orElse(estimatedSize));
+            try (var fis = response.body();
+                 var channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                transferToChannel(fis, channel, 0, downloaded, null, watch);
+            }
+            return true;
+        }
+        response.body().close();
+        return false;
+    }
+
+    private static void downloadSegmented(URI uri, HttpRequest template, File target, DownloadJournal journal, AtomicLong downloaded, int connections,
+                                          StallWatch watch) throws IOException, InterruptedException {
+        var pending = journal.getSegments().stream().filter(segment -> !segment.isDone()).toList();
+        if (pending.isEmpty()) {
+            return;
+        }
+        try (var file = new RandomAccessFile(target, "rw")) {
+            file.setLength(journal.getTotalLength());
+            var channel = file.getChannel();
+            // cancelling interrupts the readers and a blocked HttpClient body read fails with an IOException then,
+            // the bodies are closed as well so their connections are given up at once
+            var bodies = ConcurrentHashMap.<InputStream>newKeySet();
+            var failed = new AtomicBoolean(false);
+            // a journal from an earlier run may have more segments than we may open connections now
+            try (var executor = Executors.newFixedThreadPool(Math.min(pending.size(), connections))) {
+                // results in the order they finish, one failed segment must not wait behind a slow sibling
+                var completion = new ExecutorCompletionService<Void>(executor);
+                var futures = new ArrayList<Future<Void>>(pending.size());
+                for (var segment : pending) {
+                    futures.add(completion.submit(() -> {
+                        if (failed.get()) {
+                            return null;
+                        }
+                        var from = segment.getPosition().get();
+                        var builder = copyRequest(template).uri(uri).header("Range", "bytes=" + from + "-" + segment.getTo());
+                        if (journal.resumable()) {
+                            builder.header("If-Range", journal.getValidator());
+                        }
+                        var response = getClient().send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+                        try (var in = response.body()) {
+                            bodies.add(in);
+                            if (failed.get()) {
+                                return null;
+                            }
+                            if (response.statusCode() != 206) {
+                                // the file changed on the server while we were downloading it
+                                journal.delete();
+                                throw new ChangedOnServerException("Unexpected status " + response.statusCode() + " for range " + from + "-" + segment.getTo());
+                            }
+                            transferToChannel(in, channel, from, downloaded, segment.getPosition(), watch);
+                            if (!segment.isDone()) {
+                                throw new IOException("Incomplete range " + from + "-" + segment.getTo());
+                            }
+                        } finally {
+                            bodies.remove(response.body());
+                        }
+                        return null;
+                    }));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        completion.take().get();
+                    } catch (ExecutionException e) {
+                        failed.set(true);
+                        for (var each : bodies) {
+                            try {
+                                each.close();
+                            } catch (IOException ignore) {
+
+                            }
+                        }
+                        futures.forEach(each -> each.cancel(true));
+                        throw e.getCause() instanceof ChangedOnServerException changed ? changed : new IOException(e.getCause());
+                    }
+                }
+            }
+        }
+    }
+
+    private static long transferToChannel(InputStream in, FileChannel channel, long position, AtomicLong counter, AtomicLong segmentPosition,
+                                          StallWatch watch) throws IOException {
+        var buffer = new byte[TRANSFER_BUFFER_SIZE];
+        var byteBuffer = ByteBuffer.wrap(buffer);
+        long written = 0;
+        int length;
+        watch.enter();
+        try {
+            while ((length = in.read(buffer)) != -1) {
+                byteBuffer.clear().limit(length);
+                while (byteBuffer.hasRemaining()) {
+                    written += channel.write(byteBuffer, position + written);
+                }
+                counter.addAndGet(length);
+                if (segmentPosition != null) {
+                    segmentPosition.addAndGet(length);
+                }
+            }
+        } finally {
+            watch.exit();
+        }
+        if (watch.stalled()) {
+            throw new IOException("No data received for " + STALL_TIMEOUT + "ms");
+        }
+        return written;
+    }
+
+    // a range answered without 206 to If-Range: the file was replaced on the server, not the endpoint's fault
+    private static final class ChangedOnServerException extends IOException {
+        private ChangedOnServerException(String message) {
+            super(message);
+        }
+    }
+
+    // interrupts the threads reading a download once the counter stops moving, a blocked read then fails with an IOException
+    private static final class StallWatch extends TimerTask {
+        private final AtomicLong counter;
+        private final Set<Thread> readers = new HashSet<>();
+        private long last = -1;
+        private boolean stalled = false;
+
+        private StallWatch(AtomicLong counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public synchronized void run() {
+            var now = counter.get();
+            if (now == last && !readers.isEmpty()) {
+                stalled = true;
+                readers.forEach(Thread::interrupt);
+            }
+            last = now;
+        }
+
+        synchronized void enter() {
+            readers.add(Thread.currentThread());
+        }
+
+        synchronized void exit() {
+            readers.remove(Thread.currentThread());
+            if (stalled) {
+                // the interrupt was meant for the read only
+                //noinspection ResultOfMethodCallIgnored
+                Thread.interrupted();
+            }
+        }
+
+        synchronized boolean stalled() {
+            return stalled;
+        }
+    }
+
+    private static HttpRequest.Builder copyRequest(HttpRequest request) {
+        var builder = HttpRequest.newBuilder(request.uri());
+        request.headers().map().forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+        request.timeout().ifPresent(builder::timeout);
+        return builder.GET();
+    }
+
+    private static long parseContentRangeTotal(HttpResponse<?> response) {
+        // Content-Range: bytes 0-0/12345
+        var contentRange = response.headers().firstValue("Content-Range").orElse(null);
+        if (contentRange == null || !contentRange.contains("/")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(StringUtils.afterLast(contentRange, "/").trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // the download bar on a terminal, a download-progress event in json log mode
+    public static void progress(String name, long finished, long total, long bytesPerSecond) {
+        if (Logger.isJson()) {
+            Logger.event("download-progress", "name", name, "bytes", finished, "total", total, "bytesPerSecond", bytesPerSecond);
+            return;
+        }
+        bar(total <= 0 ? 0 : (float) (finished * 1.0 / total), displayableBytes(finished) + "/" +
+                displayableBytes(total) + " (" + displayableBytes(bytesPerSecond) + "/s)");
+    }
+
     public static void bar(float percent, String append) {
         percent = Math.min(1, percent);
         final int width = AnsiConsole.getTerminalWidth();
@@ -289,6 +645,7 @@ public final class HttpUtils {
         ansi.a("=".repeat(finishedWidth));
         ansi.fgBrightYellow().a("-".repeat(barWidth - finishedWidth));
         ansi.a("] ").reset().a(String.format("%.2f%%", percent * 100)).a(" ").a(append);
-        System.out.println(ansi);
+        // through the logger, so a repaint can not end up in the middle of a log line
+        Logger.raw(ansi + System.lineSeparator());
     }
 }
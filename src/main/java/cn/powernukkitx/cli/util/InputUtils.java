@@ -1,5 +1,6 @@
 package cn.powernukkitx.cli.util;
 
+import java.util.Formatter;
 import java.util.ResourceBundle;
 import java.util.Scanner;
 
@@ -14,6 +15,7 @@ public final class InputUtils {
 
     public static int readIndex(String prompt) {
         Logger.info(prompt + " ");
+        Logger.flush();
         var scanner = new Scanner(System.in);
         return scanner.nextInt();
     }
@@ -28,6 +30,7 @@ public final class InputUtils {
 
     public static void pressEnterToContinue() {
         Logger.info(bundle.getString("press-enter-to-continue"));
+        Logger.flush();
         try {
             //noinspection ResultOfMethodCallIgnored
             System.in.read();
@@ -37,20 +40,36 @@ public final class InputUtils {
     }
 
     public static boolean pressEnterToStopWithTimeLimit(long timeLimit) {
-        Logger.info(ansi().fgBrightDefault().bold().a(bundle.getString("press-enter-to-stop-with-time-limit")).fgDefault().boldOff());
+        return pressEnterToStopWithTimeLimit(timeLimit, InputUtils::pollEnter);
+    }
+
+    // for when another thread already reads System.in and hands the Enter over
+    public static boolean pressEnterToStopWithTimeLimit(long timeLimit, EnterWaiter waiter) {
+        Logger.info(ansi().fgBrightDefault().bold().a(new Formatter().format(bundle.getString("press-enter-to-stop-with-time-limit"),
+                Math.max(1, (timeLimit + 999) / 1000))).fgDefault().boldOff());
+        Logger.flush();
         try {
-            var startTime = System.currentTimeMillis();
-            while (System.currentTimeMillis() - startTime < timeLimit) {
-                if (System.in.available() > 0) {
-                    return true;
-                } else {
-                    //noinspection BusyWait
-                    Thread.sleep(100);
-                }
-            }
+            return waiter.await(timeLimit);
         } catch (Exception e) {
             e.printStackTrace();
         }
         return false;
     }
+
+    private static boolean pollEnter(long timeLimit) throws Exception {
+        var startTime = System.currentTimeMillis();
+        while (System.currentTimeMillis() - startTime < timeLimit) {
+            if (System.in.available() > 0) {
+                return true;
+            } else {
+                //noinspection BusyWait
+                Thread.sleep(100);
+            }
+        }
+        return false;
+    }
+
+    public interface EnterWaiter {
+        boolean await(long timeLimit) throws Exception;
+    }
 }
@@ -0,0 +1,105 @@
+package cn.powernukkitx.cli.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+// appends NDJSON straight into a reused StringBuilder, no gson tree and no intermediate strings per field
+public final class JsonLine {
+    private static final DateTimeFormatter SECONDS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneOffset.UTC);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder builder;
+    private long second = Long.MIN_VALUE;
+    private String secondText = "";
+    private boolean first = true;
+
+    public JsonLine(@NotNull StringBuilder builder) {
+        this.builder = builder;
+    }
+
+    // every line starts with the UTC time, formatted once per second
+    public @NotNull JsonLine begin(long millis) {
+        if (millis / 1000 != second) {
+            second = millis / 1000;
+            secondText = SECONDS.format(Instant.ofEpochSecond(second));
+        }
+        var ms = (int) (millis % 1000);
+        builder.append("{\"ts\":\"").append(secondText).append('.')
+                .append((char) ('0' + ms / 100)).append((char) ('0' + ms / 10 % 10)).append((char) ('0' + ms % 10)).append("Z\"");
+        first = false;
+        return this;
+    }
+
+    public @NotNull JsonLine field(@NotNull String key, @Nullable Object value) {
+        if (!first) {
+            builder.append(',');
+        }
+        first = false;
+        string(key);
+        builder.append(':');
+        value(value);
+        return this;
+    }
+
+    public void end() {
+        builder.append('}').append('\n');
+        first = true;
+    }
+
+    private void value(Object value) {
+        // json has no NaN or Infinity
+        if (value == null || value instanceof Double d && !Double.isFinite(d) || value instanceof Float f && !Float.isFinite(f)) {
+            builder.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            builder.append(value);
+        } else if (value instanceof Iterable<?> iterable) {
+            builder.append('[');
+            var firstElement = true;
+            for (var each : iterable) {
+                if (!firstElement) {
+                    builder.append(',');
+                }
+                firstElement = false;
+                value(each);
+            }
+            builder.append(']');
+        } else {
+            string(value instanceof CharSequence chars ? chars : value.toString());
+        }
+    }
+
+    // escape sequences are dropped instead of escaped, log shippers only want the text
+    private void string(CharSequence value) {
+        builder.append('"');
+        var length = value.length();
+        for (int i = 0; i < length; i++) {
+            var c = value.charAt(i);
+            if (c == '\u001b' && i + 1 < length && value.charAt(i + 1) == '[') {
+                i += 2;
+                while (i < length && (value.charAt(i) < '@' || value.charAt(i) > '~')) {
+                    i++;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        builder.append('"');
+    }
+}
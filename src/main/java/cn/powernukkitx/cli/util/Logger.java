@@ -3,83 +3,230 @@ package cn.powernukkitx.cli.util;
 import cn.powernukkitx.cli.Main;
 import org.fusesource.jansi.Ansi;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import static org.fusesource.jansi.Ansi.ansi;
 
+// callers only enqueue, one writer thread formats and prints in batches, so download timers never wait for the console
 public final class Logger {
     public static DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss");
 
-    public static final AtomicInteger ProgressPrefixLength = new AtomicInteger(0);
+    private static final int BATCH_SIZE = 64 * 1024;
+    private static final MpscRing<Entry> ring = new MpscRing<>(4096);
+    private static volatile boolean writerParked = false;
+    private static volatile boolean json = false;
+    private static final Thread writer;
+
+    static {
+        writer = Thread.ofPlatform().daemon().name("pnx-cli-logger").start(Logger::write);
+        // the writer is a daemon thread, whatever is still queued would be lost on exit
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::flush));
+    }
+
+    private enum Kind {
+        INFO,
+        WARN,
+        ERROR,
+        RAW,
+        PROGRESS,
+        CLEAR_PROGRESS,
+        EVENT,
+        FLUSH
+    }
+
+    private record Entry(Kind kind, long time, Object msg, Object[] fields, int length, CountDownLatch done) {
+    }
 
     private Logger() {
         throw new UnsupportedOperationException();
     }
 
-    public static void clearProgress() {
-        var len = ProgressPrefixLength.get();
-        if (len != 0) {
-            System.out.print(ansi().eraseLine().cursorLeft(len));
-            len = ProgressPrefixLength.addAndGet(-len);
-            if (len != 0) {
-                clearProgress();
-            }
+    // NDJSON for log shippers: colors are turned off, progress drawing is dropped and events are written
+    public static void useJson(boolean useJson) {
+        json = useJson;
+        if (useJson) {
+            Ansi.setEnabled(false);
         }
     }
 
-    public static void ensureRunningFormatBefore() {
-        if (Main.pnxRunning) {
-            System.out.print(ansi().eraseLine().cursorLeft(2));
+    public static boolean isJson() {
+        return json;
+    }
+
+    public static void clearProgress() {
+        enqueue(new Entry(Kind.CLEAR_PROGRESS, 0, null, null, 0, null));
+    }
+
+    // the spinner text is erased again before the next log line, printLength is what it takes up on screen
+    public static void progress(String msg, int printLength) {
+        enqueue(new Entry(Kind.PROGRESS, 0, msg, null, printLength, null));
+    }
+
+    // blocks until everything logged so far is on the console, for code that prints or reads the console itself
+    public static void flush() {
+        if (Thread.currentThread() == writer || !writer.isAlive()) {
+            return;
+        }
+        var done = new CountDownLatch(1);
+        enqueue(new Entry(Kind.FLUSH, 0, null, null, 0, done));
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            done.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     public static void info(String msg) {
-        clearProgress();
-        ensureRunningFormatBefore();
-        System.out.println(ansi().fgCyan().a(LocalDateTime.now().format(formatter))
-                .fgDefault().a(" [").fgBlue().a("INFO ").fgDefault().a("] ").fgDefault().a(msg).reset());
+        log(Kind.INFO, msg);
     }
 
     public static void info(Ansi msg) {
-        clearProgress();
-        ensureRunningFormatBefore();
-        System.out.println(ansi().fgCyan().a(LocalDateTime.now().format(formatter))
-                .fgDefault().a(" [").fgBlue().a("INFO ").fgDefault().a("] ").fgDefault().a(msg).reset());
+        log(Kind.INFO, msg);
     }
 
     public static void warn(String msg) {
-        clearProgress();
-        ensureRunningFormatBefore();
-        System.out.println(ansi().fgCyan().a(LocalDateTime.now().format(formatter))
-                .fgDefault().a(" [").fgRed().a("WARN ").fgDefault().a("] ").fgDefault().a(msg).reset());
+        log(Kind.WARN, msg);
     }
 
     public static void warn(Ansi msg) {
-        clearProgress();
-        ensureRunningFormatBefore();
-        System.out.println(ansi().fgCyan().a(LocalDateTime.now().format(formatter))
-                .fgDefault().a(" [").fgRed().a("WARN ").fgDefault().a("] ").fgDefault().a(msg).reset());
+        log(Kind.WARN, msg);
     }
 
     public static void error(String msg) {
-        clearProgress();
-        ensureRunningFormatBefore();
-        System.out.println(ansi().fgCyan().a(LocalDateTime.now().format(formatter))
-                .fgDefault().a(" [").fgBrightRed().a("ERROR").fgDefault().a("] ").fgDefault().a(msg).reset());
+        log(Kind.ERROR, msg);
     }
 
     public static void error(Ansi msg) {
-        clearProgress();
-        ensureRunningFormatBefore();
-        System.out.println(ansi().fgCyan().a(LocalDateTime.now().format(formatter))
-                .fgDefault().a(" [").fgBrightRed().a("ERROR").fgDefault().a("] ").fgDefault().a(msg).reset());
+        log(Kind.ERROR, msg);
     }
 
     public static void raw(String msg) {
-        clearProgress();
-        ensureRunningFormatBefore();
-        System.out.print(msg);
+        enqueue(new Entry(Kind.RAW, 0, msg, null, 0, null));
+    }
+
+    // machine readable only, the text format already has a line for whatever happened; fields are key, value pairs
+    public static void event(String event, Object... fields) {
+        if (json) {
+            enqueue(new Entry(Kind.EVENT, System.currentTimeMillis(), event, fields, 0, null));
+        }
+    }
+
+    // Ansi messages are only turned into text on the writer thread
+    private static void log(Kind kind, Object msg) {
+        enqueue(new Entry(kind, System.currentTimeMillis(), msg, null, 0, null));
+    }
+
+    private static void enqueue(Entry entry) {
+        while (!ring.offer(entry)) {
+            // the console is slower than the logging, wait the way a synchronous println would
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(100_000);
+        }
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private static void write() {
+        var batch = new StringBuilder(BATCH_SIZE);
+        var flushes = new ArrayList<CountDownLatch>();
+        var progressLength = 0;
+        var second = Long.MIN_VALUE;
+        var timestamp = "";
+        var jsonLine = new JsonLine(batch);
+        while (true) {
+            var entry = ring.poll();
+            if (entry == null) {
+                writerParked = true;
+                entry = ring.poll();
+                if (entry == null) {
+                    LockSupport.park();
+                }
+                writerParked = false;
+                if (entry == null) {
+                    continue;
+                }
+            }
+            try {
+                do {
+                    if (json) {
+                        writeJson(jsonLine, entry, flushes);
+                        continue;
+                    }
+                    switch (entry.kind()) {
+                        case FLUSH -> flushes.add(entry.done());
+                        case PROGRESS -> {
+                            batch.append(entry.msg());
+                            progressLength += entry.length();
+                        }
+                        default -> {
+                            if (progressLength != 0) {
+                                ansi(batch).eraseLine().cursorLeft(progressLength);
+                                progressLength = 0;
+                            }
+                            if (entry.kind() == Kind.CLEAR_PROGRESS) {
+                                break;
+                            }
+                            // PNX printed a "> " prompt without a line break
+                            if (Main.pnxRunning) {
+                                ansi(batch).eraseLine().cursorLeft(2);
+                            }
+                            if (entry.kind() == Kind.RAW) {
+                                batch.append(entry.msg());
+                                break;
+                            }
+                            if (entry.time() / 1000 != second) {
+                                second = entry.time() / 1000;
+                                timestamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault()).format(formatter);
+                            }
+                            var level = ansi(batch).fgCyan().a(timestamp).fgDefault().a(" [");
+                            switch (entry.kind()) {
+                                case INFO -> level.fgBlue().a("INFO ");
+                                case WARN -> level.fgRed().a("WARN ");
+                                default -> level.fgBrightRed().a("ERROR");
+                            }
+                            level.fgDefault().a("] ").fgDefault().a(entry.msg()).reset().a(System.lineSeparator());
+                        }
+                    }
+                } while (batch.length() < BATCH_SIZE && (entry = ring.poll()) != null);
+                System.out.print(batch);
+                System.out.flush();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                batch.setLength(0);
+                for (var each : flushes) {
+                    each.countDown();
+                }
+                flushes.clear();
+            }
+        }
+    }
+
+    private static void writeJson(JsonLine line, Entry entry, List<CountDownLatch> flushes) {
+        switch (entry.kind()) {
+            case FLUSH -> flushes.add(entry.done());
+            case INFO, WARN, ERROR -> line.begin(entry.time()).field("level", entry.kind().name().toLowerCase()).field("msg", entry.msg()).end();
+            case EVENT -> {
+                line.begin(entry.time()).field("level", "info").field("event", entry.msg());
+                var fields = entry.fields();
+                for (int i = 0; i + 1 < fields.length; i += 2) {
+                    line.field(String.valueOf(fields[i]), fields[i + 1]);
+                }
+                line.end();
+            }
+            default -> {
+                // progress drawing and raw output are for terminals, events carry the same information
+            }
+        }
     }
 }
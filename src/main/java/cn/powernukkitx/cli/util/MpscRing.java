@@ -0,0 +1,47 @@
+package cn.powernukkitx.cli.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// bounded multi producer single consumer queue: producers claim a slot with a CAS, the consumer never takes a lock
+final class MpscRing<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(0);
+    // only the consumer writes it
+    private volatile long head = 0;
+
+    MpscRing(int capacity) {
+        var size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // false when full
+    boolean offer(@NotNull T value) {
+        long index;
+        do {
+            index = tail.get();
+            if (index - head >= slots.length()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(index, index + 1));
+        slots.set((int) index & mask, value);
+        return true;
+    }
+
+    // null when empty, or when the producer that claimed the next slot has not stored into it yet
+    @Nullable T poll() {
+        var index = (int) head & mask;
+        var value = slots.get(index);
+        if (value == null) {
+            return null;
+        }
+        slots.set(index, null);
+        head = head + 1;
+        return value;
+    }
+}
@@ -40,6 +40,26 @@ public final class StringUtils {
         }
     }
 
+    public static long parseBytes(String str) {
+        var tmp = str.trim().toLowerCase();
+        if (tmp.endsWith("b")) {
+            tmp = tmp.substring(0, tmp.length() - 1);
+        }
+        long unit = 1;
+        if (!tmp.isEmpty()) {
+            switch (tmp.charAt(tmp.length() - 1)) {
+                case 'k' -> unit = 1024;
+                case 'm' -> unit = 1024 * 1024;
+                case 'g' -> unit = 1024 * 1024 * 1024;
+                case 't' -> unit = 1024L * 1024 * 1024 * 1024;
+            }
+        }
+        if (unit != 1) {
+            tmp = tmp.substring(0, tmp.length() - 1);
+        }
+        return (long) (Double.parseDouble(tmp.trim()) * unit);
+    }
+
     public static String displayableFreq(long hz) {
         if (hz >= 1000000000) {
             return String.format("%.2fGHz", hz / 1000000000.0);
@@ -0,0 +1,224 @@
+package cn.powernukkitx.cli.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+// reads a zip straight from its central directory, without opening a ZipFile or touching the entries we do not need
+public final class ZipDirectory implements Closeable {
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int EOCD_SIZE = 22;
+
+    private final FileChannel channel;
+    private final Map<String, Entry> entries;
+
+    private ZipDirectory(FileChannel channel, Map<String, Entry> entries) {
+        this.channel = channel;
+        this.entries = entries;
+    }
+
+    public static @NotNull ZipDirectory open(@NotNull File file) throws IOException {
+        var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new ZipDirectory(channel, readCentralDirectory(channel));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ioException ? ioException : new IOException(e);
+        }
+    }
+
+    private static Map<String, Entry> readCentralDirectory(FileChannel channel) throws IOException {
+        var size = channel.size();
+        if (size < EOCD_SIZE) {
+            throw new IOException("Not a zip file");
+        }
+        // the EOCD record sits in the last 22 bytes plus an up to 64k long comment
+        var tailSize = (int) Math.min(size, EOCD_SIZE + 0xFFFF);
+        var tail = readFully(channel, size - tailSize, tailSize);
+        var eocd = -1;
+        for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new IOException("End of central directory not found");
+        }
+        var total = Short.toUnsignedInt(tail.getShort(eocd + 10));
+        var cenSize = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+        var cenOffset = Integer.toUnsignedLong(tail.getInt(eocd + 16));
+        // exactly 65535 entries is still a plain zip, only the zip64 locator in front of the EOCD tells them apart
+        var zip64 = eocd >= 20 && tail.getInt(eocd - 20) == ZIP64_LOCATOR_SIGNATURE;
+        if (zip64 || cenSize == 0xFFFFFFFFL || cenOffset == 0xFFFFFFFFL || cenOffset + cenSize > size || cenSize > Integer.MAX_VALUE) {
+            throw new ZipException("Zip64 archives are not supported");
+        }
+        var cen = readFully(channel, cenOffset, (int) cenSize);
+        var entries = new LinkedHashMap<String, Entry>(total * 4 / 3 + 1);
+        var nameBuffer = new byte[256];
+        int position = 0;
+        for (int i = 0; i < total; i++) {
+            if (cen.getInt(position) != CEN_SIGNATURE) {
+                throw new IOException("Broken central directory");
+            }
+            var method = Short.toUnsignedInt(cen.getShort(position + 10));
+            var crc = Integer.toUnsignedLong(cen.getInt(position + 16));
+            var compressedSize = Integer.toUnsignedLong(cen.getInt(position + 20));
+            var uncompressedSize = Integer.toUnsignedLong(cen.getInt(position + 24));
+            var nameLength = Short.toUnsignedInt(cen.getShort(position + 28));
+            var extraLength = Short.toUnsignedInt(cen.getShort(position + 30));
+            var commentLength = Short.toUnsignedInt(cen.getShort(position + 32));
+            var localHeaderOffset = Integer.toUnsignedLong(cen.getInt(position + 42));
+            if (nameBuffer.length < nameLength) {
+                nameBuffer = new byte[nameLength];
+            }
+            cen.get(position + 46, nameBuffer, 0, nameLength);
+            var name = new String(nameBuffer, 0, nameLength, StandardCharsets.UTF_8);
+            entries.put(name, new Entry(name, method, crc, compressedSize, uncompressedSize, localHeaderOffset));
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    public boolean contains(@NotNull String name) {
+        return entries.containsKey(name);
+    }
+
+    public boolean containsAny(@NotNull Collection<String> names) {
+        for (var each : names) {
+            if (entries.containsKey(each)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public @Nullable Entry getEntry(@NotNull String name) {
+        return entries.get(name);
+    }
+
+    public @NotNull Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    // heap buffers only, a mapped region keeps the file locked on Windows until it is garbage collected
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of zip file");
+            }
+        }
+        return buffer.clear();
+    }
+
+    private long dataOffset(Entry entry) throws IOException {
+        var header = readFully(channel, entry.localHeaderOffset(), 30);
+        if (header.getInt(0) != LOC_SIGNATURE) {
+            throw new IOException("Broken local header of " + entry.name());
+        }
+        return entry.localHeaderOffset() + 30 + Short.toUnsignedInt(header.getShort(26)) + Short.toUnsignedInt(header.getShort(28));
+    }
+
+    // the raw, still compressed bytes of an entry; positional reads, so several entries can be streamed at once
+    public @NotNull InputStream openRaw(@NotNull Entry entry) throws IOException {
+        var start = dataOffset(entry);
+        var end = start + entry.compressedSize();
+        return new InputStream() {
+            private long position = start;
+
+            @Override
+            public int read() throws IOException {
+                var one = new byte[1];
+                return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+                if (position >= end) {
+                    return -1;
+                }
+                var n = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position)), position);
+                if (n < 0) {
+                    throw new EOFException("Unexpected end of zip file");
+                }
+                position += n;
+                return n;
+            }
+        };
+    }
+
+    public byte @Nullable [] read(@NotNull String name) throws IOException {
+        var entry = entries.get(name);
+        if (entry == null || entry.isDirectory()) {
+            return null;
+        }
+        if (entry.compressedSize() > Integer.MAX_VALUE || entry.size() > Integer.MAX_VALUE) {
+            throw new IOException("Entry " + name + " is too large");
+        }
+        var data = readFully(channel, dataOffset(entry), (int) entry.compressedSize());
+        var output = new byte[(int) entry.size()];
+        switch (entry.method()) {
+            case 0 -> data.get(output);
+            case 8 -> {
+                var inflater = new Inflater(true);
+                try {
+                    inflater.setInput(data);
+                    var read = 0;
+                    while (read < output.length && !inflater.finished()) {
+                        var n = inflater.inflate(output, read, output.length - read);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        read += n;
+                    }
+                    if (read != output.length) {
+                        throw new IOException("Truncated entry " + name);
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException(e);
+                } finally {
+                    inflater.end();
+                }
+            }
+            default -> throw new IOException("Unsupported compression method " + entry.method() + " of " + name);
+        }
+        var crc = new CRC32();
+        crc.update(output);
+        if (crc.getValue() != entry.crc()) {
+            throw new ZipException("CRC mismatch of " + name);
+        }
+        return output;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public record Entry(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+}
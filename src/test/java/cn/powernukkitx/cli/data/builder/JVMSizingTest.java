@@ -0,0 +1,62 @@
+package cn.powernukkitx.cli.data.builder;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JVMSizingTest {
+    private static final long MB = 1024 * 1024;
+    private static final long GB = 1024 * MB;
+
+    @Test
+    void reservesAQuarterOutsideTheHeap() {
+        var sizing = JVMSizing.compute(8 * GB, true, 8, false, null);
+        assertEquals(6 * GB, sizing.heap());
+        assertFalse(sizing.heapConfigured());
+        assertEquals(GB, sizing.maxDirectMemory());
+        assertEquals(6 * GB - 6 * GB / 10, sizing.softMaxHeap());
+        assertEquals(2, sizing.concGCThreads());
+    }
+
+    @Test
+    void smallContainersKeepMinimumReserveAndHeap() {
+        var small = JVMSizing.compute(512 * MB, true, 1, true, null);
+        assertEquals(256 * MB, small.heap());
+        assertEquals(128 * MB, small.maxDirectMemory());
+        assertEquals(1, small.concGCThreads());
+
+        var tiny = JVMSizing.compute(200 * MB, true, 1, true, null);
+        assertEquals(128 * MB, tiny.heap());
+        assertEquals(64 * MB, tiny.maxDirectMemory());
+    }
+
+    @Test
+    void configuredHeapWinsWhenItFits() {
+        var sizing = JVMSizing.compute(8 * GB, false, 4, false, "4g");
+        assertEquals(4 * GB, sizing.heap());
+        assertTrue(sizing.heapConfigured());
+        assertEquals(GB, sizing.maxDirectMemory());
+    }
+
+    @Test
+    void configuredHeapIsClampedToTheContainer() {
+        var sizing = JVMSizing.compute(8 * GB, true, 4, false, "16g");
+        assertEquals(8 * GB - 256 * MB, sizing.heap());
+        assertTrue(sizing.heapConfigured());
+        assertEquals(192 * MB, sizing.maxDirectMemory());
+    }
+
+    @Test
+    void invalidConfiguredHeapIsIgnored() {
+        var sizing = JVMSizing.compute(8 * GB, false, 4, false, "lots");
+        assertEquals(6 * GB, sizing.heap());
+        assertFalse(sizing.heapConfigured());
+        assertEquals(6 * GB, JVMSizing.compute(8 * GB, false, 4, false, " ").heap());
+    }
+
+    @Test
+    void formatsJVMSizes() {
+        assertEquals("1024m", JVMSizing.toJVMSize(GB));
+        assertEquals("1m", JVMSizing.toJVMSize(1000));
+    }
+}
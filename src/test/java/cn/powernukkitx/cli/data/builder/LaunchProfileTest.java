@@ -0,0 +1,66 @@
+package cn.powernukkitx.cli.data.builder;
+
+import cn.powernukkitx.cli.data.locator.JavaLocator;
+import cn.powernukkitx.cli.util.EnumOS;
+import cn.powernukkitx.cli.util.OSUtils;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaunchProfileTest {
+    private static final String OTHER_OS = OSUtils.getOS() == EnumOS.WINDOWS ? "linux" : "windows";
+
+    private static final LaunchProfile PROFILE = LaunchProfile.from("test", JsonParser.parseString("""
+            {
+              "version": 1,
+              "description": "for tests",
+              "minJava": 21,
+              "options": [
+                {"flag": "UseZGC", "value": true},
+                {"flag": "ZGenerational", "value": true, "until": 23},
+                {"flag": "ZUncommitDelay", "value": 30, "since": 22},
+                {"flag": "EnableJVMCI", "value": true, "vendor": "graal"},
+                {"flag": "UseLargePages", "value": false, "os": "%s"},
+                {"flag": "AllocatePrefetchStyle", "value": "1", "os": "%s"}
+              ]
+            }""".formatted(OTHER_OS, OSUtils.getOS().name().toLowerCase())).getAsJsonObject());
+
+    @Test
+    void appliesMatchingFlagsAndReportsMismatches() {
+        var builder = new JVMStartCommandBuilder();
+        var skipped = PROFILE.apply(builder, new JavaLocator.JavaInfo("21", "21.0.1", "Eclipse Adoptium"));
+
+        assertEquals(Map.of("UseZGC", true, "ZGenerational", true, "AllocatePrefetchStyle", "1"), Map.copyOf(builder.getXxOptions()));
+        // a flag for another os is left out silently
+        assertEquals(List.of("ZUncommitDelay", "EnableJVMCI"), skipped);
+    }
+
+    @Test
+    void versionAndVendorSelectFlags() {
+        var builder = new JVMStartCommandBuilder();
+        var skipped = PROFILE.apply(builder, new JavaLocator.JavaInfo("24", "24.0.1", "Oracle GraalVM"));
+
+        assertEquals(30L, builder.getXxOptions().get("ZUncommitDelay"));
+        assertEquals(true, builder.getXxOptions().get("EnableJVMCI"));
+        assertFalse(builder.getXxOptions().containsKey("ZGenerational"));
+        assertEquals(List.of("ZGenerational"), skipped);
+    }
+
+    @Test
+    void checksMinimumJava() {
+        assertTrue(PROFILE.supports(new JavaLocator.JavaInfo("21", "21.0.1", "Eclipse Adoptium")));
+        assertFalse(PROFILE.supports(new JavaLocator.JavaInfo("17", "17.0.9", "Eclipse Adoptium")));
+        assertFalse(PROFILE.supports(new JavaLocator.JavaInfo("unknown", "unknown", "Eclipse Adoptium")));
+    }
+
+    @Test
+    void loadsShippedProfiles() {
+        assertTrue(LaunchProfile.getAll().containsKey("default"));
+        assertTrue(LaunchProfile.get("DEFAULT").isPresent());
+        assertTrue(LaunchProfile.get("missing").isEmpty());
+    }
+}
@@ -0,0 +1,46 @@
+package cn.powernukkitx.cli.data.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JarIndexTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void findsProbedEntries() throws IOException {
+        var jar = jar("plain.jar", 3);
+        var index = new JarIndex(new File(dir, "jars.json"));
+        assertTrue(index.scan(jar, List.of("missing", "1")).found());
+        assertFalse(index.scan(jar, List.of("missing")).found());
+    }
+
+    @Test
+    void zip64JarFallsBackToJarFile() throws IOException {
+        var jar = jar("zip64.jar", 0x10000);
+        var index = new JarIndex(new File(dir, "jars.json"));
+        assertTrue(index.scan(jar, List.of("65535")).found());
+        assertFalse(index.scan(jar, List.of("missing")).found());
+    }
+
+    private File jar(String name, int entries) throws IOException {
+        var jar = new File(dir, name);
+        try (var out = new ZipOutputStream(new FileOutputStream(jar))) {
+            out.setLevel(0);
+            for (int i = 0; i < entries; i++) {
+                out.putNextEntry(new ZipEntry(Integer.toString(i)));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,83 @@
+package cn.powernukkitx.cli.data.installer;
+
+import cn.powernukkitx.cli.data.bean.RemoteFileBean;
+import cn.powernukkitx.cli.util.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibsSyncEngineTest {
+    private static final long REMOTE_TIME = 1_700_000_000_000L;
+
+    @TempDir
+    File libs;
+
+    @Test
+    void plansEveryKindOfChange() throws IOException, NoSuchAlgorithmException {
+        var remote = new LinkedHashMap<String, RemoteFileBean>();
+        remote("missing.jar", "missing", remote);
+        write("resized.jar", "old");
+        remote("resized.jar", "resized", remote);
+        write("stamped.jar", "same");
+        new File(libs, "stamped.jar").setLastModified(REMOTE_TIME);
+        remote("stamped.jar", "same", remote);
+        write("hashed.jar", "same");
+        remote("hashed.jar", "same", remote);
+        write("corrupt.jar", "sane");
+        remote("corrupt.jar", "same", remote);
+        write("stale.jar", "stale");
+        write("notes.txt", "not a jar");
+
+        var plan = new LibsSyncEngine(libs, remote).plan();
+
+        assertEquals(List.of("missing.jar"), plan.added().stream().map(RemoteFileBean::fileName).toList());
+        assertEquals(List.of("resized.jar", "corrupt.jar"), plan.changed().stream().map(RemoteFileBean::fileName).toList());
+        assertEquals(List.of(new File(libs, "stale.jar")), plan.stale());
+        assertEquals(2, plan.unchanged().size());
+        assertTrue(plan.unchanged().contains(new File(libs, "stamped.jar")));
+        assertTrue(plan.unchanged().contains(new File(libs, "hashed.jar")));
+        assertEquals("missing".length() + "resized".length() + "same".length(), plan.downloadSize());
+        assertFalse(plan.upToDate());
+    }
+
+    @Test
+    void planningWritesNothing() throws IOException, NoSuchAlgorithmException {
+        write("hashed.jar", "same");
+        var file = new File(libs, "hashed.jar");
+        file.setLastModified(REMOTE_TIME - 60_000);
+        var remote = new LinkedHashMap<String, RemoteFileBean>();
+        remote("hashed.jar", "same", remote);
+
+        var plan = new LibsSyncEngine(libs, remote).plan();
+
+        assertTrue(plan.upToDate());
+        assertEquals(REMOTE_TIME - 60_000, file.lastModified());
+    }
+
+    @Test
+    void emptyDirAgainstEmptyListIsUpToDate() {
+        assertTrue(new LibsSyncEngine(libs, Map.of()).plan().upToDate());
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.writeString(new File(libs, name).toPath(), content, StandardCharsets.UTF_8);
+    }
+
+    private static void remote(String name, String content, Map<String, RemoteFileBean> remote) throws NoSuchAlgorithmException {
+        var bytes = content.getBytes(StandardCharsets.UTF_8);
+        var md5 = FileUtils.bytesToHex(MessageDigest.getInstance("MD5").digest(bytes));
+        remote.put(name, new RemoteFileBean("libs/" + name, bytes.length, new Date(REMOTE_TIME), md5, 0));
+    }
+}
@@ -0,0 +1,122 @@
+package cn.powernukkitx.cli.data.installer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StagedInstallerTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void directoryCommitKeepsPreviousGeneration() throws IOException {
+        var libs = new File(dir, "libs");
+        write(new File(libs, "a.jar"), "old");
+        var installer = StagedInstaller.forDirectory(libs);
+        write(new File(installer.begin(), "a.jar"), "new");
+        installer.commit();
+
+        assertEquals("new", read(new File(libs, "a.jar")));
+        assertEquals("old", read(new File(dir, "libs.previous/a.jar")));
+        assertFalse(new File(dir, "libs.staging").exists());
+        assertFalse(new File(dir, "libs.switching").exists());
+    }
+
+    @Test
+    void directoryRollbackTwiceRestoresUpdate() throws IOException {
+        var libs = new File(dir, "libs");
+        write(new File(libs, "a.jar"), "old");
+        var installer = StagedInstaller.forDirectory(libs);
+        write(new File(installer.begin(), "a.jar"), "new");
+        installer.commit();
+
+        installer.rollback();
+        assertEquals("old", read(new File(libs, "a.jar")));
+        installer.rollback();
+        assertEquals("new", read(new File(libs, "a.jar")));
+    }
+
+    @Test
+    void abortLeavesTargetAlone() throws IOException {
+        var libs = new File(dir, "libs");
+        write(new File(libs, "a.jar"), "old");
+        var installer = StagedInstaller.forDirectory(libs);
+        write(new File(installer.begin(), "a.jar"), "new");
+        installer.abort();
+
+        assertEquals("old", read(new File(libs, "a.jar")));
+        assertFalse(new File(dir, "libs.staging").exists());
+        assertFalse(installer.canRollback());
+    }
+
+    @Test
+    void recoverRestoresInterruptedSwitch() throws IOException {
+        var libs = new File(dir, "libs");
+        write(new File(dir, "libs.previous/a.jar"), "old");
+        write(new File(dir, "libs.switching"), "commit");
+        StagedInstaller.forDirectory(libs).recover();
+
+        assertEquals("old", read(new File(libs, "a.jar")));
+        assertFalse(new File(dir, "libs.switching").exists());
+    }
+
+    @Test
+    void recoverWithoutMarkerKeepsRemovedDir() throws IOException {
+        var libs = new File(dir, "libs");
+        write(new File(dir, "libs.previous/a.jar"), "old");
+        StagedInstaller.forDirectory(libs).recover();
+
+        assertFalse(libs.exists());
+        assertTrue(new File(dir, "libs.previous/a.jar").exists());
+    }
+
+    @Test
+    void fileCommitAndRollback() throws IOException {
+        write(new File(dir, "old-core.jar"), "old");
+        write(new File(dir, "server.properties"), "keep");
+        var installer = StagedInstaller.forFiles(dir, "core");
+        write(new File(installer.begin(), "new-core.jar"), "new");
+        installer.commit(List.of(new File(dir, "old-core.jar")));
+
+        assertEquals("new", read(new File(dir, "new-core.jar")));
+        assertFalse(new File(dir, "old-core.jar").exists());
+        assertTrue(installer.canRollback());
+
+        installer.rollback();
+        assertEquals("old", read(new File(dir, "old-core.jar")));
+        assertFalse(new File(dir, "new-core.jar").exists());
+        assertEquals("keep", read(new File(dir, "server.properties")));
+
+        installer.rollback();
+        assertEquals("new", read(new File(dir, "new-core.jar")));
+        assertFalse(new File(dir, "old-core.jar").exists());
+    }
+
+    @Test
+    void firstInstallCannotBeRolledBack() throws IOException {
+        var installer = StagedInstaller.forFiles(dir, "core");
+        write(new File(installer.begin(), "core.jar"), "new");
+        installer.commit();
+
+        assertTrue(new File(dir, "core.previous").isDirectory());
+        assertFalse(installer.canRollback());
+        assertThrows(IOException.class, installer::rollback);
+        assertEquals("new", read(new File(dir, "core.jar")));
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+    }
+
+    private static String read(File file) throws IOException {
+        return Files.readString(file.toPath(), StandardCharsets.UTF_8);
+    }
+}
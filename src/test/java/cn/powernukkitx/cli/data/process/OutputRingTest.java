@@ -0,0 +1,122 @@
+package cn.powernukkitx.cli.data.process;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputRingTest {
+    @Test
+    void readerStartsAtCurrentEnd() throws InterruptedException {
+        var ring = new OutputRing(16);
+        write(ring, "old");
+        var reader = ring.newReader();
+        write(ring, "new");
+        assertEquals("new", read(reader, 16));
+    }
+
+    @Test
+    void wrapsAroundAcrossTheEnd() throws InterruptedException {
+        var ring = new OutputRing(8);
+        var reader = ring.newReader();
+        write(ring, "abcdef");
+        assertEquals("abcdef", read(reader, 16));
+        write(ring, "ghijk");
+        // the first read stops at the physical end of the buffer, the second continues from its start
+        assertEquals("gh", read(reader, 16));
+        assertEquals("ijk", read(reader, 16));
+        assertEquals(0, reader.takeSkipped());
+    }
+
+    @Test
+    void slowReaderLosesOldestBytes() throws InterruptedException {
+        var ring = new OutputRing(8);
+        var reader = ring.newReader();
+        write(ring, "0123456789");
+        assertEquals("23456789", readAll(reader, 8));
+        assertEquals(2, reader.takeSkipped());
+        assertEquals(0, reader.takeSkipped());
+    }
+
+    @Test
+    void writeLargerThanRingKeepsTail() throws InterruptedException {
+        var ring = new OutputRing(4);
+        var reader = ring.newReader();
+        write(ring, "abcdefghij");
+        assertEquals("ghij", readAll(reader, 4));
+        assertEquals(6, reader.takeSkipped());
+    }
+
+    @Test
+    void closeEndsBlockedRead() throws InterruptedException {
+        var ring = new OutputRing(8);
+        var reader = ring.newReader();
+        var result = new AtomicInteger(0);
+        var thread = Thread.startVirtualThread(() -> {
+            try {
+                result.set(reader.read(new byte[8]));
+            } catch (InterruptedException ignored) {
+            }
+        });
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertTrue(thread.isAlive());
+        ring.close();
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+        assertEquals(-1, result.get());
+    }
+
+    @Test
+    void closedRingStillDrainsWhatWasWritten() throws InterruptedException {
+        var ring = new OutputRing(8);
+        var reader = ring.newReader();
+        write(ring, "bye");
+        ring.close();
+        write(ring, "lost");
+        assertEquals("bye", read(reader, 8));
+        assertEquals(-1, reader.read(new byte[8]));
+    }
+
+    @Test
+    void closingReaderEndsOnlyThatReader() throws InterruptedException {
+        var ring = new OutputRing(8);
+        var closedReader = ring.newReader();
+        var other = ring.newReader();
+        var result = new AtomicInteger(0);
+        var thread = Thread.startVirtualThread(() -> {
+            try {
+                result.set(closedReader.read(new byte[8]));
+            } catch (InterruptedException ignored) {
+            }
+        });
+        TimeUnit.MILLISECONDS.sleep(100);
+        closedReader.close();
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+        assertEquals(-1, result.get());
+        write(ring, "x");
+        assertEquals("x", read(other, 8));
+    }
+
+    private static void write(OutputRing ring, String text) {
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        ring.write(bytes, 0, bytes.length);
+    }
+
+    private static String read(OutputRing.Reader reader, int size) throws InterruptedException {
+        var bytes = new byte[size];
+        var length = reader.read(bytes);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static String readAll(OutputRing.Reader reader, int expected) throws InterruptedException {
+        var result = new StringBuilder();
+        while (result.length() < expected) {
+            result.append(read(reader, expected));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package cn.powernukkitx.cli.data.process;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SupervisorTest {
+    private static final Supervisor.Launch LAUNCH = new Supervisor.Launch(List.of("pnx"), () -> true, List::of);
+
+    @Test
+    void parsesPolicies() {
+        var supervisor = supervisor("0:stop 130:stop 143:stop 2:immediate *:restart", 0, 5, new Exits());
+        assertEquals(Supervisor.Policy.STOP, supervisor.policyOf(0));
+        assertEquals(Supervisor.Policy.STOP, supervisor.policyOf(143));
+        assertEquals(Supervisor.Policy.IMMEDIATE, supervisor.policyOf(2));
+        assertEquals(Supervisor.Policy.RESTART, supervisor.policyOf(1));
+    }
+
+    @Test
+    void fallsBackToRestartAndSkipsBrokenParts() {
+        var supervisor = supervisor("  0:STOP   x:stop 1:sometimes 3 4:immediate:extra  ", 0, 5, new Exits());
+        assertEquals(Supervisor.Policy.STOP, supervisor.policyOf(0));
+        assertEquals(Supervisor.Policy.RESTART, supervisor.policyOf(1));
+        assertEquals(Supervisor.Policy.RESTART, supervisor.policyOf(3));
+        assertEquals(Supervisor.Policy.RESTART, supervisor.policyOf(4));
+        assertEquals(Supervisor.Policy.RESTART, supervisor.policyOf(99));
+    }
+
+    @Test
+    void stopPolicyEndsSupervision() {
+        var exits = new Exits(5);
+        assertEquals(5, supervisor("5:stop *:immediate", 0, 3, exits).supervise(LAUNCH));
+        assertEquals(1, exits.launches);
+    }
+
+    @Test
+    void quickExitsEndInCrashLoop() {
+        var exits = new Exits(1, 1, 1, 1, 1);
+        assertEquals(1, supervisor("*:immediate", 60_000, 3, exits).supervise(LAUNCH));
+        assertEquals(3, exits.launches);
+    }
+
+    @Test
+    void longRunsResetQuickExits() {
+        var exits = new Exits(1, 1, 1, 1, 0);
+        assertEquals(0, supervisor("0:stop *:immediate", 0, 2, exits).supervise(LAUNCH));
+        assertEquals(5, exits.launches);
+    }
+
+    @Test
+    void failedPrepareEndsSupervision() {
+        var exits = new Exits(1);
+        var supervisor = new Supervisor(prewarm -> null, exits, "*:immediate", 60_000, 5);
+        assertEquals(1, supervisor.supervise(LAUNCH));
+        assertEquals(1, exits.launches);
+    }
+
+    private static Supervisor supervisor(String policy, long minRestartTime, int maxQuickRestarts, Exits exits) {
+        return new Supervisor(prewarm -> LAUNCH, exits, policy, minRestartTime, maxQuickRestarts);
+    }
+
+    // launches processes that exit right away with the given codes, in order
+    private static final class Exits implements Supervisor.Runner {
+        private final Iterator<Integer> codes;
+        private int launches = 0;
+
+        private Exits(Integer... codes) {
+            this.codes = new ArrayList<>(List.of(codes)).iterator();
+        }
+
+        @Override
+        public Process launch(List<String> argv) {
+            launches++;
+            return new Exited(codes.next());
+        }
+
+        @Override
+        public void attach(Process process) {
+
+        }
+    }
+
+    private static final class Exited extends Process {
+        private final int code;
+
+        private Exited(int code) {
+            this.code = code;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public int waitFor() {
+            return code;
+        }
+
+        @Override
+        public boolean waitFor(long timeout, TimeUnit unit) {
+            return true;
+        }
+
+        @Override
+        public int exitValue() {
+            return code;
+        }
+
+        @Override
+        public void destroy() {
+
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package cn.powernukkitx.cli.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CGroupUtilsTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void v2TakesTheLowestLimitUpTheTree() throws IOException {
+        var root = v2Root();
+        write(root, "memory.max", "max");
+        write(root, "a/memory.max", "536870912");
+        write(root, "a/b/memory.max", "1073741824");
+        var self = write(dir, "self", "0::/a/b\n");
+        assertEquals(OptionalLong.of(536870912), CGroupUtils.memoryLimit(root, self));
+    }
+
+    @Test
+    void v2WithoutLimitIsEmpty() throws IOException {
+        var root = v2Root();
+        write(root, "a/memory.max", "max");
+        write(root, "a/cpu.max", "max 100000");
+        var self = write(dir, "self", "0::/a\n");
+        assertEquals(OptionalLong.empty(), CGroupUtils.memoryLimit(root, self));
+        assertEquals(OptionalDouble.empty(), CGroupUtils.cpuLimit(root, self));
+    }
+
+    @Test
+    void v2NamespaceFallsBackToTheMount() throws IOException {
+        var root = v2Root();
+        write(root, "memory.max", "268435456");
+        write(root, "cpu.max", "150000 100000");
+        // inside a cgroup namespace the path from /proc/self/cgroup does not exist below the mount
+        var self = write(dir, "self", "0::/docker/abc\n");
+        assertEquals(OptionalLong.of(268435456), CGroupUtils.memoryLimit(root, self));
+        assertEquals(OptionalDouble.of(1.5), CGroupUtils.cpuLimit(root, self));
+    }
+
+    @Test
+    void v1ReadsPerControllerHierarchies() throws IOException {
+        var root = new File(dir, "cgroup");
+        write(root, "memory/docker/x/memory.limit_in_bytes", "2147483648");
+        write(root, "cpu/docker/x/cpu.cfs_quota_us", "200000");
+        write(root, "cpu/docker/x/cpu.cfs_period_us", "100000");
+        var self = write(dir, "self", "12:pids:/docker/x\n4:memory:/docker/x\n3:cpu,cpuacct:/docker/x\n");
+        assertEquals(OptionalLong.of(2147483648L), CGroupUtils.memoryLimit(root, self));
+        assertEquals(OptionalDouble.of(2), CGroupUtils.cpuLimit(root, self));
+    }
+
+    @Test
+    void v1UnlimitedValuesAreEmpty() throws IOException {
+        var root = new File(dir, "cgroup");
+        // v1 reports "no limit" as the largest page aligned long
+        write(root, "memory/memory.limit_in_bytes", "9223372036854771712");
+        write(root, "cpu/cpu.cfs_quota_us", "-1");
+        write(root, "cpu/cpu.cfs_period_us", "100000");
+        var self = write(dir, "self", "4:memory:/\n3:cpu,cpuacct:/\n");
+        assertEquals(OptionalLong.empty(), CGroupUtils.memoryLimit(root, self));
+        assertEquals(OptionalDouble.empty(), CGroupUtils.cpuLimit(root, self));
+    }
+
+    @Test
+    void missingFilesMeanNoLimit() {
+        var root = new File(dir, "cgroup");
+        var self = new File(dir, "missing");
+        assertEquals(OptionalLong.empty(), CGroupUtils.memoryLimit(root, self));
+        assertEquals(OptionalDouble.empty(), CGroupUtils.cpuLimit(root, self));
+    }
+
+    private File v2Root() throws IOException {
+        var root = new File(dir, "cgroup");
+        write(root, "cgroup.controllers", "cpu memory pids");
+        return root;
+    }
+
+    private static File write(File root, String path, String content) throws IOException {
+        var file = new File(root, path);
+        //noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+}
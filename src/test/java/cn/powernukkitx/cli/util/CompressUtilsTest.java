@@ -0,0 +1,83 @@
+package cn.powernukkitx.cli.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressUtilsTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void extractsStoredAndDeflatedEntries() throws IOException {
+        var random = new byte[300_000];
+        new Random(1).nextBytes(random);
+        var text = "libs ".repeat(100_000).getBytes(StandardCharsets.UTF_8);
+        var zip = new File(dir, "libs.zip");
+        try (var out = new ZipOutputStream(new FileOutputStream(zip))) {
+            stored(out, "a/random.bin", random);
+            out.putNextEntry(new ZipEntry("b/text.txt"));
+            out.write(text);
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("empty.txt"));
+            out.closeEntry();
+        }
+        var target = new File(dir, "out");
+        CompressUtils.uncompressZipFile(zip, target);
+
+        assertArrayEquals(random, Files.readAllBytes(new File(target, "a/random.bin").toPath()));
+        assertArrayEquals(text, Files.readAllBytes(new File(target, "b/text.txt").toPath()));
+        assertEquals(0, new File(target, "empty.txt").length());
+        // nothing keeps the zip open or mapped afterwards
+        Files.delete(zip.toPath());
+    }
+
+    @Test
+    void flippedBitFailsExtraction() throws IOException {
+        var content = "x".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+        var zip = new File(dir, "libs.zip");
+        try (var out = new ZipOutputStream(new FileOutputStream(zip))) {
+            stored(out, "x.txt", content);
+        }
+        var bytes = Files.readAllBytes(zip.toPath());
+        var at = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("xxxx") + 5000;
+        bytes[at] ^= 1;
+        Files.write(zip.toPath(), bytes);
+
+        assertThrows(ZipException.class, () -> CompressUtils.uncompressZipFile(zip, new File(dir, "out")));
+    }
+
+    @Test
+    void entryOutsideTargetIsRejected() throws IOException {
+        var zip = new File(dir, "evil.zip");
+        try (var out = new ZipOutputStream(new FileOutputStream(zip))) {
+            stored(out, "../evil.txt", "evil".getBytes(StandardCharsets.UTF_8));
+        }
+        assertThrows(IOException.class, () -> CompressUtils.uncompressZipFile(zip, new File(dir, "out")));
+        assertFalse(new File(dir, "evil.txt").exists());
+    }
+
+    private static void stored(ZipOutputStream out, String name, byte[] bytes) throws IOException {
+        var entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(bytes.length);
+        var crc = new CRC32();
+        crc.update(bytes);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+}
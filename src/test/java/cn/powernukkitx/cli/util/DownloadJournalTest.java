@@ -0,0 +1,101 @@
+package cn.powernukkitx.cli.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownloadJournalTest {
+    private static final String URL = "https://example.com/libs.tar.gz";
+    private static final String ETAG = "\"abc\"";
+
+    @TempDir
+    File dir;
+
+    @Test
+    void segmentsCoverWholeFile() {
+        var journal = DownloadJournal.create(new File(dir, "f"), URL, ETAG, 10, 3);
+        var segments = journal.getSegments();
+        assertEquals(3, segments.size());
+        assertEquals(0, segments.get(0).getFrom());
+        assertEquals(2, segments.get(0).getTo());
+        assertEquals(3, segments.get(1).getFrom());
+        assertEquals(5, segments.get(1).getTo());
+        assertEquals(6, segments.get(2).getFrom());
+        assertEquals(9, segments.get(2).getTo());
+        assertEquals(0, journal.completedBytes());
+    }
+
+    @Test
+    void savedProgressIsResumed() throws IOException {
+        var target = target(100);
+        var journal = DownloadJournal.create(target, URL, ETAG, 100, 2);
+        journal.getSegments().get(0).getPosition().set(50);
+        journal.getSegments().get(1).getPosition().addAndGet(20);
+        journal.save();
+
+        var resumed = DownloadJournal.load(target, URL, ETAG, 100);
+        assertNotNull(resumed);
+        assertEquals(70, resumed.completedBytes());
+        assertTrue(resumed.getSegments().get(0).isDone());
+        assertFalse(resumed.getSegments().get(1).isDone());
+        assertEquals(70, resumed.getSegments().get(1).getPosition().get());
+    }
+
+    @Test
+    void changedFileIsNotResumed() throws IOException {
+        var target = target(100);
+        DownloadJournal.create(target, URL, ETAG, 100, 2).save();
+
+        assertNull(DownloadJournal.load(target, URL, "\"other\"", 100));
+        assertNull(DownloadJournal.load(target, URL + "?2", ETAG, 100));
+        assertNull(DownloadJournal.load(target, URL, ETAG, 101));
+        assertNull(DownloadJournal.load(target, URL, null, 100));
+        assertNotNull(DownloadJournal.load(target, URL, ETAG, 100));
+    }
+
+    @Test
+    void targetOfWrongLengthIsNotResumed() throws IOException {
+        var target = target(99);
+        DownloadJournal.create(target, URL, ETAG, 100, 2).save();
+        assertNull(DownloadJournal.load(target, URL, ETAG, 100));
+    }
+
+    @Test
+    void withoutValidatorNothingIsSaved() throws IOException {
+        var target = target(100);
+        var journal = DownloadJournal.create(target, URL, null, 100, 2);
+        assertFalse(journal.resumable());
+        journal.save();
+        assertFalse(DownloadJournal.journalFileOf(target).exists());
+    }
+
+    @Test
+    void deletedJournalIsNotSavedAgain() throws IOException {
+        var target = target(100);
+        var journal = DownloadJournal.create(target, URL, ETAG, 100, 2);
+        journal.save();
+        journal.delete();
+        journal.save();
+        assertFalse(DownloadJournal.journalFileOf(target).exists());
+    }
+
+    @Test
+    void brokenJournalIsIgnored() throws IOException {
+        var target = target(100);
+        FileUtils.writeAtomically(DownloadJournal.journalFileOf(target), "{not json");
+        assertNull(DownloadJournal.load(target, URL, ETAG, 100));
+    }
+
+    private File target(long length) throws IOException {
+        var target = new File(dir, "libs.tar.gz");
+        try (var file = new RandomAccessFile(target, "rw")) {
+            file.setLength(length);
+        }
+        return target;
+    }
+}
@@ -0,0 +1,65 @@
+package cn.powernukkitx.cli.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonLineTest {
+    @Test
+    void writesTimestampAndFields() {
+        var builder = new StringBuilder();
+        new JsonLine(builder).begin(1_700_000_000_007L).field("n", 3).field("ok", true).field("none", null).end();
+        assertEquals("{\"ts\":\"2023-11-14T22:13:20.007Z\",\"n\":3,\"ok\":true,\"none\":null}\n", builder.toString());
+    }
+
+    @Test
+    void reusedForSeveralLines() {
+        var builder = new StringBuilder();
+        var line = new JsonLine(builder);
+        line.begin(1_700_000_000_999L).field("a", 1).end();
+        line.begin(1_700_000_000_999L).end();
+        line.begin(1_700_000_001_000L).field("b", List.of("x", 2)).end();
+        assertEquals("""
+                {"ts":"2023-11-14T22:13:20.999Z","a":1}
+                {"ts":"2023-11-14T22:13:20.999Z"}
+                {"ts":"2023-11-14T22:13:21.000Z","b":["x",2]}
+                """, builder.toString());
+    }
+
+    @Test
+    void writesNonFiniteNumbersAsNull() {
+        var builder = new StringBuilder();
+        new JsonLine(builder).begin(0).field("nan", Double.NaN).field("inf", Float.NEGATIVE_INFINITY).field("x", 1.5).end();
+        assertEquals("{\"ts\":\"1970-01-01T00:00:00.000Z\",\"nan\":null,\"inf\":null,\"x\":1.5}\n", builder.toString());
+    }
+
+    @Test
+    void escapesSpecialCharacters() {
+        assertEquals("\"q\\\"b\\\\n\\nr\\rt\\tc\\u0001\\u001f\"", string("q\"b\\n\nr\rt\tc\u0001\u001f"));
+    }
+
+    @Test
+    void stripsAnsiSequences() {
+        assertEquals("\"red bold plain\"", string("\u001b[31mred\u001b[0m \u001b[1;4mbold\u001b[m plain"));
+    }
+
+    @Test
+    void keepsLoneEscapeAsControlCharacter() {
+        assertEquals("\"a\\u001bb\"", string("a\u001bb"));
+        assertEquals("\"a\\u001b\"", string("a\u001b"));
+    }
+
+    @Test
+    void unterminatedSequenceDropsRest() {
+        assertEquals("\"a\"", string("a\u001b[31"));
+    }
+
+    private static String string(String value) {
+        var builder = new StringBuilder();
+        new JsonLine(builder).begin(0).field("v", value).end();
+        var text = builder.toString();
+        return text.substring(text.indexOf("\"v\":") + "\"v\":".length(), text.length() - 2);
+    }
+}
@@ -0,0 +1,122 @@
+package cn.powernukkitx.cli.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingTest {
+    @Test
+    void capacityRoundsUpToPowerOfTwo() {
+        var ring = new MpscRing<Integer>(5);
+        var accepted = 0;
+        while (ring.offer(accepted)) {
+            accepted++;
+        }
+        assertEquals(8, accepted);
+    }
+
+    @Test
+    void fullRingRejectsUntilPolled() {
+        var ring = new MpscRing<String>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer("v" + i));
+        }
+        assertFalse(ring.offer("overflow"));
+        assertEquals("v0", ring.poll());
+        assertTrue(ring.offer("v4"));
+        assertFalse(ring.offer("overflow"));
+    }
+
+    @Test
+    void wrapsAroundInOrder() {
+        var ring = new MpscRing<Integer>(4);
+        var next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(ring.offer(round * 3 + i));
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(next++, ring.poll());
+            }
+            assertNull(ring.poll());
+        }
+    }
+
+    @Test
+    void claimedSlotWithoutValueBlocksLaterSlots() throws ReflectiveOperationException {
+        var ring = new MpscRing<String>(4);
+        assertTrue(ring.offer("a"));
+        // what a producer leaves behind between its CAS on tail and its store into the slot
+        var claimed = (int) ((AtomicLong) field("tail").get(ring)).getAndIncrement() & 3;
+        assertTrue(ring.offer("c"));
+
+        assertEquals("a", ring.poll());
+        assertNull(ring.poll());
+        assertNull(ring.poll());
+
+        @SuppressWarnings("unchecked")
+        var slots = (AtomicReferenceArray<String>) field("slots").get(ring);
+        slots.set(claimed, "b");
+        assertEquals("b", ring.poll());
+        assertEquals("c", ring.poll());
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void concurrentProducersLoseNothing() throws InterruptedException {
+        var ring = new MpscRing<Integer>(64);
+        var producers = 4;
+        var perProducer = 20_000;
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            var base = p * perProducer;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        var seen = new HashSet<Integer>();
+        var lastOfProducer = new int[producers];
+        Arrays.fill(lastOfProducer, -1);
+        while (seen.size() < producers * perProducer) {
+            var value = ring.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            assertTrue(seen.add(value));
+            // each producer's values come out in the order it offered them
+            var producer = value / perProducer;
+            assertTrue(value % perProducer > lastOfProducer[producer]);
+            lastOfProducer[producer] = value % perProducer;
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertNull(ring.poll());
+    }
+
+    private static Field field(String name) throws NoSuchFieldException {
+        var field = MpscRing.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+}
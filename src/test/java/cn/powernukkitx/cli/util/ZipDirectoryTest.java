@@ -0,0 +1,116 @@
+package cn.powernukkitx.cli.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipDirectoryTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void readsStoredAndDeflatedEntries() throws IOException {
+        var zip = new File(dir, "a.zip");
+        try (var out = new ZipOutputStream(new FileOutputStream(zip))) {
+            stored(out, "stored.txt", "plain text");
+            out.putNextEntry(new ZipEntry("dir/"));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("dir/deflated.txt"));
+            out.write("deflated ".repeat(1000).getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.setComment("a comment after the central directory");
+        }
+        try (var directory = ZipDirectory.open(zip)) {
+            assertEquals(3, directory.getEntries().size());
+            assertTrue(directory.contains("dir/deflated.txt"));
+            assertTrue(directory.containsAny(List.of("missing", "stored.txt")));
+            assertFalse(directory.containsAny(List.of("missing")));
+            assertTrue(directory.getEntry("dir/").isDirectory());
+            assertEquals("plain text", new String(directory.read("stored.txt"), StandardCharsets.UTF_8));
+            assertEquals("deflated ".repeat(1000), new String(directory.read("dir/deflated.txt"), StandardCharsets.UTF_8));
+            assertNull(directory.read("dir/"));
+            assertNull(directory.read("missing"));
+
+            var crc = new CRC32();
+            crc.update("plain text".getBytes(StandardCharsets.UTF_8));
+            assertEquals(crc.getValue(), directory.getEntry("stored.txt").crc());
+        }
+    }
+
+    @Test
+    void keepsEntryOrder() throws IOException {
+        var zip = new File(dir, "a.zip");
+        try (var out = new ZipOutputStream(new FileOutputStream(zip))) {
+            for (var name : List.of("c", "a", "b")) {
+                out.putNextEntry(new ZipEntry(name));
+                out.closeEntry();
+            }
+        }
+        try (var directory = ZipDirectory.open(zip)) {
+            assertEquals(List.of("c", "a", "b"), directory.getEntries().stream().map(ZipDirectory.Entry::name).toList());
+        }
+    }
+
+    @Test
+    void flippedBitFailsRead() throws IOException {
+        var zip = new File(dir, "a.zip");
+        try (var out = new ZipOutputStream(new FileOutputStream(zip))) {
+            stored(out, "stored.txt", "plain text");
+        }
+        var bytes = Files.readAllBytes(zip.toPath());
+        var at = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("plain text");
+        bytes[at] ^= 1;
+        Files.write(zip.toPath(), bytes);
+        try (var directory = ZipDirectory.open(zip)) {
+            assertThrows(ZipException.class, () -> directory.read("stored.txt"));
+        }
+    }
+
+    @Test
+    void rejectsNonZip() throws IOException {
+        var file = new File(dir, "a.zip");
+        Files.writeString(file.toPath(), "this is not a zip file at all, just some text");
+        assertThrows(IOException.class, () -> ZipDirectory.open(file));
+        Files.writeString(file.toPath(), "short");
+        assertThrows(IOException.class, () -> ZipDirectory.open(file));
+    }
+
+    @Test
+    void rejectsZip64() throws IOException {
+        var zip = new File(dir, "a.zip");
+        // more entries than a plain EOCD can count makes ZipOutputStream write zip64 records
+        try (var out = new ZipOutputStream(new FileOutputStream(zip))) {
+            out.setLevel(0);
+            for (int i = 0; i < 0x10000; i++) {
+                out.putNextEntry(new ZipEntry(Integer.toString(i)));
+                out.closeEntry();
+            }
+        }
+        assertThrows(ZipException.class, () -> ZipDirectory.open(zip));
+    }
+
+    private static void stored(ZipOutputStream out, String name, String content) throws IOException {
+        var bytes = content.getBytes(StandardCharsets.UTF_8);
+        var entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(bytes.length);
+        var crc = new CRC32();
+        crc.update(bytes);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+}